@@ -0,0 +1,117 @@
+package com.DreamLong.utility_plugin;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compares a JMH JSON result file (-rf json) with a recorded baseline and exits with status 1 when a
+// benchmark got slower by more than the threshold, beyond the combined error of both runs.
+//
+// Usage: java -cp target/benchmarks.jar com.DreamLong.utility_plugin.BaselineComparator
+//            <results.json> [baseline.json] [threshold-percent]
+public final class BaselineComparator {
+
+    private static final String DEFAULT_BASELINE = "baseline/baseline.json";
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+
+    private static final class Score {
+        final double value;
+        final double error;
+        final String unit;
+        final boolean higherIsBetter;
+
+        Score(double value, double error, String unit, boolean higherIsBetter) {
+            this.value = value;
+            this.error = error;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+
+    private BaselineComparator() {
+    }
+
+    public static void main(String[] args) throws IOException, ParseException {
+        if (args.length < 1) {
+            System.err.println("Usage: BaselineComparator <results.json> [baseline.json] [threshold-percent]");
+            System.exit(2);
+        }
+        String baselineFile = args.length > 1 ? args[1] : DEFAULT_BASELINE;
+        if (!Files.isRegularFile(Paths.get(baselineFile))) {
+            System.err.println("No baseline at " + baselineFile + "; copy a results file there to record one.");
+            System.exit(2);
+        }
+        Map<String, Score> current = read(args[0]);
+        Map<String, Score> baseline = read(baselineFile);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %s: %.3f %s%n", entry.getKey(), now.value, now.unit);
+                continue;
+            }
+            // Positive change means slower, whatever the benchmark mode
+            double change = (now.higherIsBetter ? before.value - now.value : now.value - before.value) / before.value * 100.0;
+            boolean beyondError = Math.abs(now.value - before.value) > now.error + before.error;
+            String verdict;
+            if (change > threshold && beyondError) {
+                verdict = "REGRESSION";
+                regressions++;
+            } else if (change < -threshold && beyondError) {
+                verdict = "IMPROVED  ";
+            } else {
+                verdict = "OK        ";
+            }
+            double delta = (now.value - before.value) / before.value * 100.0;
+            System.out.printf("%s %s: %.3f -> %.3f %s (%+.1f%%)%n", verdict, entry.getKey(), before.value, now.value, now.unit, delta);
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.println("MISSING    " + key);
+            }
+        }
+
+        System.out.println(regressions == 0 ? "No regressions beyond " + threshold + "%."
+                : regressions + " benchmark(s) regressed by more than " + threshold + "%.");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    // Keys results by benchmark name and parameters
+    private static Map<String, Score> read(String path) throws IOException, ParseException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            JSONArray runs = (JSONArray) new JSONParser().parse(reader);
+            for (Object item : runs) {
+                JSONObject run = (JSONObject) item;
+                StringBuilder key = new StringBuilder((String) run.get("benchmark"));
+                JSONObject params = (JSONObject) run.get("params");
+                if (params != null) {
+                    for (Object param : new TreeMap<Object, Object>(params).entrySet()) {
+                        Map.Entry<?, ?> pair = (Map.Entry<?, ?>) param;
+                        key.append(' ').append(pair.getKey()).append('=').append(pair.getValue());
+                    }
+                }
+                JSONObject metric = (JSONObject) run.get("primaryMetric");
+                double error = metric.get("scoreError") instanceof Number ? ((Number) metric.get("scoreError")).doubleValue() : 0.0;
+                if (Double.isNaN(error)) {
+                    error = 0.0;
+                }
+                scores.put(key.toString(), new Score(((Number) metric.get("score")).doubleValue(), error,
+                        (String) metric.get("scoreUnit"), "thrpt".equals(run.get("mode"))));
+            }
+        }
+        return scores;
+    }
+}
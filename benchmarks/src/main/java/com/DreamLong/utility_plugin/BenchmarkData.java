@@ -0,0 +1,93 @@
+package com.DreamLong.utility_plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// Shared fixtures: synthetic accounts and the storage engines the plugin supports
+final class BenchmarkData {
+
+    static final Logger LOGGER = Logger.getLogger("UtilityPlugin-Benchmarks");
+
+    // A stored hash of realistic length; the stores never look inside it
+    private static final String PASSWORD_HASH = "pbkdf2$210000$c2FsdHNhbHRzYWx0c2FsdA==$aGFzaGhhc2hoYXNoaGFzaGhhc2hoYXNoaGFzaGhhc2g=";
+
+    private BenchmarkData() {
+    }
+
+    // Deterministic account ids for a given seed
+    static UUID[] accountIds(int accounts, long seed) {
+        Random random = new Random(seed);
+        UUID[] ids = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        return ids;
+    }
+
+    // An account with the mix seen on a live server: mostly clean, some warned, a few banned or muted
+    static PlayerData account(int index, Random random) {
+        long now = System.currentTimeMillis();
+        PlayerData data = new PlayerData("Player" + index, PASSWORD_HASH, 0, 0, 0, 0, 0, 0, 0);
+        int roll = random.nextInt(100);
+        if (roll < 20) {
+            data.setWarns(1 + random.nextInt(3));
+            data.setStartWarns(now);
+        }
+        if (roll < 3) {
+            data.setBans(random.nextBoolean() ? -1 : 60 + random.nextInt(10_000));
+            data.setStartBans(now - TimeUnit.MINUTES.toMillis(random.nextInt(60)));
+        } else if (roll < 6) {
+            data.setMutes(random.nextBoolean() ? -1 : 600 + random.nextInt(10_000));
+            data.setStartMutes(now);
+        }
+        return data;
+    }
+
+    static PlayerStore openStore(String engine, File directory) throws IOException {
+        switch (engine) {
+            case "binary":
+                return new BinaryPlayerStore(new File(directory, "players.dat"), LOGGER);
+            case "sqlite":
+                return new SqlPlayerStore(new File(directory, "players.db"), 4);
+            case "yaml":
+                return new YamlPlayerStore(new File(directory, "players"), LOGGER, 0);
+            default:
+                throw new IllegalArgumentException("Unknown storage engine: " + engine);
+        }
+    }
+
+    // Writes the accounts in batches, the way the persistence queue does
+    static void populate(PlayerStore store, UUID[] ids, long seed) throws IOException {
+        Random random = new Random(seed);
+        Map<UUID, PlayerData> batch = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            batch.put(ids[i], account(i, random));
+            if (batch.size() == 1000 || i == ids.length - 1) {
+                store.saveAll(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    static File createDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory("utility-" + prefix).toFile();
+    }
+
+    static void delete(File directory) throws IOException {
+        if (directory == null || !directory.exists()) {
+            return;
+        }
+        try (Stream<java.nio.file.Path> paths = Files.walk(directory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+}
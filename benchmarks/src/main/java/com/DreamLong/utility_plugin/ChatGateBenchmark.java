@@ -0,0 +1,130 @@
+package com.DreamLong.utility_plugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// The onPlayerChat decision under heavy concurrent chat: session lookup, PlayerSession.checkChat, the spam
+// detector and the chat filter, with and without a main thread logging players in and muting them at the
+// same time
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ChatGateBenchmark {
+
+    private static final int ONLINE = 1_000;
+    private static final int BLOCKED_WORDS = 2_000;
+
+    // Ordinary chat lines; one in eight repeats the line before it
+    private static final String[] LINES = {
+            "anyone want to trade some diamonds for iron",
+            "where is the nether portal from spawn",
+            "where is the nether portal from spawn",
+            "gg that was close",
+            "can someone help me with the farm please",
+            "brb getting food",
+            "does the shop take emeralds?",
+            "lol nice build",
+    };
+
+    private final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+    private UUID[] ids;
+    private SpamDetector spamDetector;
+    private ChatFilter chatFilter;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        int sent;
+
+        @Setup
+        public void setup() {
+            next = (int) (Thread.currentThread().getId() * 31 % ONLINE);
+        }
+
+        int advance() {
+            next = (next + 1) % ONLINE;
+            return next;
+        }
+
+        String line() {
+            return LINES[(next + sent++) & (LINES.length - 1)];
+        }
+    }
+
+    // 80% logged in, 10% muted, 10% still at the login prompt. The flood limit is switched off (a zero
+    // window), since every player here chats millions of times a second and would otherwise be refused
+    // before the repeat scan and the filter run; the repeat scan covers the configured defaults.
+    @Setup
+    public void setup() {
+        ids = BenchmarkData.accountIds(ONLINE, 11L);
+        spamDetector = new SpamDetector(5, 0L, 2, TimeUnit.SECONDS.toMillis(30), 10, 3, TimeUnit.SECONDS.toMillis(60));
+        List<String> words = new ArrayList<>(BLOCKED_WORDS);
+        for (int i = 0; i < BLOCKED_WORDS; i++) {
+            words.add("blocked" + Integer.toString(i * 7919, 36));
+        }
+        chatFilter = ChatFilter.compile(words, Collections.emptyList());
+        long muteUntil = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        for (int i = 0; i < ONLINE; i++) {
+            PlayerSession session = new PlayerSession(i % 10 == 1 ? muteUntil : 0L, spamDetector.newHistory());
+            if (i % 10 != 0) {
+                session.setLoggedIn(true);
+            }
+            sessions.put(ids[i], session);
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object chat(Cursor cursor) {
+        return decide(sessions.get(ids[cursor.advance()]), cursor.line());
+    }
+
+    @Benchmark
+    @Group("moderated")
+    @GroupThreads(15)
+    public Object moderatedChat(Cursor cursor) {
+        return decide(sessions.get(ids[cursor.advance()]), cursor.line());
+    }
+
+    @Benchmark
+    @Group("moderated")
+    @GroupThreads(1)
+    public void moderate(Cursor cursor) {
+        PlayerSession session = sessions.get(ids[cursor.advance()]);
+        session.setMuteUntil(cursor.next % 2 == 0 ? System.currentTimeMillis() + 60_000L : 0L);
+    }
+
+    // The checks of onPlayerChat in order: the login and mute gate, the spam detector, then the filter
+    private Object decide(PlayerSession session, String text) {
+        Message blocked = PlayerSession.checkChat(session);
+        if (blocked != null) {
+            return blocked;
+        }
+        Message refused = spamDetector.check(session.getChatHistory(), text, System.currentTimeMillis());
+        if (refused != null) {
+            return refused;
+        }
+        return chatFilter.censor(text);
+    }
+}
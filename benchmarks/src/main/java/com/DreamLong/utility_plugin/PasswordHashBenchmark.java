@@ -0,0 +1,59 @@
+package com.DreamLong.utility_plugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+// Cost of /register (hash) and /login (verify) at the configured and at a cheap iteration count,
+// plus the legacy SHA-256 path still accepted for old accounts
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PasswordHashBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"10000", "210000"})
+    public int iterations;
+
+    private PasswordHasher hasher;
+    private String storedHash;
+    private String legacyHash;
+
+    @Setup
+    public void setup() throws Exception {
+        hasher = new PasswordHasher(iterations);
+        storedHash = hasher.hash(PASSWORD);
+        legacyHash = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(PASSWORD.getBytes()));
+    }
+
+    @Benchmark
+    public String hashPassword() throws GeneralSecurityException {
+        return hasher.hash(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verifyPassword() throws GeneralSecurityException {
+        return hasher.verify(PASSWORD, storedHash).matches;
+    }
+
+    @Benchmark
+    public boolean verifyLegacyPassword() throws GeneralSecurityException {
+        return hasher.verify(PASSWORD, legacyHash).matches;
+    }
+}
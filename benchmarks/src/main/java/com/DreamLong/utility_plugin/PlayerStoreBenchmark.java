@@ -0,0 +1,100 @@
+package com.DreamLong.utility_plugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// The persistence path behind savePlayerData/loadPlayerData: what the persistence thread writes per
+// flush and what a join or offline command reads, for each storage engine
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PlayerStoreBenchmark {
+
+    private static final long SEED = 42L;
+
+    @Param({"yaml", "binary", "sqlite"})
+    public String engine;
+
+    @Param({"10000"})
+    public int accounts;
+
+    // Matches the default persistence.batch-size
+    @Param({"64"})
+    public int batchSize;
+
+    private File directory;
+    private PlayerStore store;
+    private UUID[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = BenchmarkData.createDirectory("store");
+        store = BenchmarkData.openStore(engine, directory);
+        ids = BenchmarkData.accountIds(accounts, SEED);
+        BenchmarkData.populate(store, ids, SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        BenchmarkData.delete(directory);
+    }
+
+    private UUID nextId() {
+        UUID id = ids[next];
+        next = (next + 1) % ids.length;
+        return id;
+    }
+
+    @Benchmark
+    public Object loadPlayerData() throws IOException {
+        return store.load(nextId());
+    }
+
+    // One counter change saved and read back, as with /warn on an offline player
+    @Benchmark
+    public Object saveAndLoadPlayerData() throws IOException {
+        UUID id = nextId();
+        PlayerData data = store.load(id);
+        data.setWarns(data.getWarns() + 1);
+        store.saveAll(Collections.singletonMap(id, data));
+        return store.load(id);
+    }
+
+    // A full persistence flush
+    @Benchmark
+    public int saveBatch() throws IOException {
+        Map<UUID, PlayerData> batch = new HashMap<>();
+        for (int i = 0; i < batchSize; i++) {
+            UUID id = nextId();
+            PlayerData data = store.load(id);
+            data.setLoginAttempts(data.getLoginAttempts() + 1);
+            batch.put(id, data);
+        }
+        store.saveAll(batch);
+        store.maintain();
+        return batch.size();
+    }
+}
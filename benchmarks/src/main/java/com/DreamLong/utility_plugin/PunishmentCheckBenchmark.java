@@ -0,0 +1,87 @@
+package com.DreamLong.utility_plugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// isBanned/isMuted as seen by pre-login and chat threads, alone and while moderators keep changing punishments
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PunishmentCheckBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    private final PunishmentIndex index = new PunishmentIndex();
+    private UUID[] ids;
+
+    // Each thread walks the accounts from its own position
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        @Setup
+        public void setup() {
+            next = (int) (Thread.currentThread().getId() * 7919 % ACCOUNTS);
+        }
+
+        int advance() {
+            next = (next + 1) % ACCOUNTS;
+            return next;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        ids = BenchmarkData.accountIds(ACCOUNTS, 3L);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < ACCOUNTS; i += 10) {
+            index.update(ids[i], now + TimeUnit.HOURS.toMillis(1), i % 20 == 0 ? PunishmentIndex.PERMANENT : 0L);
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean isBanned(Cursor cursor) {
+        return index.isBanned(ids[cursor.advance()], System.currentTimeMillis());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean isMuted(Cursor cursor) {
+        return index.isMuted(ids[cursor.advance()], System.currentTimeMillis());
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(7)
+    public boolean contendedCheck(Cursor cursor) {
+        UUID id = ids[cursor.advance()];
+        long now = System.currentTimeMillis();
+        return index.isBanned(id, now) || index.isMuted(id, now);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void contendedUpdate(Cursor cursor) {
+        UUID id = ids[cursor.advance()];
+        long now = System.currentTimeMillis();
+        index.update(id, (id.hashCode() & 1) == 0 ? now + 60_000L : 0L, 0L);
+    }
+}
@@ -0,0 +1,66 @@
+package com.DreamLong.utility_plugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Server start: open the store and build the punishment and name indexes the way loadAllData does
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class StartupIndexBenchmark {
+
+    private static final long SEED = 7L;
+
+    @Param({"1000", "10000", "100000"})
+    public int accounts;
+
+    @Param({"yaml", "binary", "sqlite"})
+    public String engine;
+
+    private File directory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = BenchmarkData.createDirectory("startup");
+        try (PlayerStore store = BenchmarkData.openStore(engine, directory)) {
+            BenchmarkData.populate(store, BenchmarkData.accountIds(accounts, SEED), SEED);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public int loadAllData() throws IOException {
+        PunishmentIndex punishments = new PunishmentIndex();
+        NameIndex names = new NameIndex();
+        try (PlayerStore store = BenchmarkData.openStore(engine, directory)) {
+            store.forEach((playerUUID, data) -> {
+                punishments.update(playerUUID,
+                        PunishmentIndex.banDeadline(data.getBans(), data.getStartBans()),
+                        PunishmentIndex.muteDeadline(data.getMutes(), data.getStartMutes()));
+                names.record(playerUUID, data.getUsername());
+            });
+        }
+        return names.size() + punishments.size();
+    }
+}
@@ -0,0 +1,367 @@
+package com.DreamLong.utility_plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Banned addresses and CIDR ranges, in one path-compressed binary (Patricia) trie per address family.
+//
+// Every node holds a prefix; a node's children extend it by at least one bit, and nodes with neither a
+// ban nor two children are merged away. A lookup walks at most one node per bit of the address, so it
+// costs O(prefix length) however many ranges are banned. Temporary bans past their deadline are skipped
+// by lookups and removed by remove() when their timer fires.
+final class AddressBans {
+
+    private static final int MAGIC = 0x55544942; // "UTIB"
+    private static final int FORMAT = 1;
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    static final class Ban {
+        final String range;
+        final long until;
+        final long created;
+        final String actor;
+        final String reason;
+
+        Ban(String range, long until, long created, String actor, String reason) {
+            this.range = range;
+            this.until = until;
+            this.created = created;
+            this.actor = actor;
+            this.reason = reason;
+        }
+
+        boolean isActive(long now) {
+            return until > now;
+        }
+    }
+
+    // An address or range parsed from text, with the host bits cleared
+    static final class Range {
+        final byte[] address;
+        final int prefixLength;
+
+        Range(byte[] address, int prefixLength) {
+            this.address = address;
+            this.prefixLength = prefixLength;
+        }
+
+        // Canonical text, e.g. "203.0.113.0/24"
+        @Override
+        public String toString() {
+            try {
+                return InetAddress.getByAddress(address).getHostAddress() + "/" + prefixLength;
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static final class Node {
+        final byte[] prefix;
+        final int length;
+        final Node[] children = new Node[2];
+        Ban ban;
+
+        Node(byte[] prefix, int length, Ban ban) {
+            this.prefix = prefix;
+            this.length = length;
+            this.ban = ban;
+        }
+    }
+
+    // Roots for IPv4 and IPv6
+    private Node root4;
+    private Node root6;
+    private int size;
+
+    // Parses "address" or "address/prefix"; only literal addresses are accepted, never host names
+    static Range parse(String text) {
+        int slash = text.indexOf('/');
+        String literal = slash < 0 ? text : text.substring(0, slash);
+        if (IPV4.matcher(literal).matches()) {
+            // Out-of-range octets would otherwise be looked up as a host name
+            for (String octet : literal.split("\\.")) {
+                if (Integer.parseInt(octet) > 255) {
+                    return null;
+                }
+            }
+        } else if (literal.indexOf(':') < 0) {
+            return null;
+        }
+        byte[] address;
+        try {
+            address = InetAddress.getByName(literal).getAddress();
+        } catch (UnknownHostException | SecurityException e) {
+            return null;
+        }
+        int bits = address.length * 8;
+        int prefixLength = bits;
+        if (slash >= 0) {
+            try {
+                prefixLength = Integer.parseInt(text.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (prefixLength < 0 || prefixLength > bits) {
+                return null;
+            }
+        }
+        return new Range(masked(address, prefixLength), prefixLength);
+    }
+
+    static Range of(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        return new Range(bytes, bytes.length * 8);
+    }
+
+    // Adds or replaces the ban of a range
+    synchronized void add(Range range, Ban ban) {
+        Node node = new Node(range.address, range.prefixLength, ban);
+        Node current = root(range.address);
+        if (current == null) {
+            setRoot(range.address, node);
+            size++;
+            return;
+        }
+        Node parent = null;
+        while (true) {
+            int common = commonPrefix(current.prefix, range.address, Math.min(current.length, range.prefixLength));
+            if (common < current.length) {
+                // The new prefix leaves the current node's path: insert it above, or branch
+                Node replacement;
+                if (common == range.prefixLength) {
+                    node.children[bit(current.prefix, common)] = current;
+                    replacement = node;
+                } else {
+                    replacement = new Node(masked(range.address, common), common, null);
+                    replacement.children[bit(range.address, common)] = node;
+                    replacement.children[bit(current.prefix, common)] = current;
+                }
+                replaceChild(parent, current, replacement, range.address);
+                size++;
+                return;
+            }
+            if (current.length == range.prefixLength) {
+                if (current.ban == null) {
+                    size++;
+                }
+                current.ban = ban;
+                return;
+            }
+            int direction = bit(range.address, current.length);
+            Node next = current.children[direction];
+            if (next == null) {
+                current.children[direction] = node;
+                size++;
+                return;
+            }
+            parent = current;
+            current = next;
+        }
+    }
+
+    // Lifts the ban of exactly this range; returns it, or null if the range was not banned
+    synchronized Ban remove(Range range) {
+        Node grandparent = null;
+        Node parent = null;
+        Node current = root(range.address);
+        while (current != null && current.length <= range.prefixLength
+                && commonPrefix(current.prefix, range.address, current.length) == current.length) {
+            if (current.length == range.prefixLength) {
+                Ban removed = current.ban;
+                if (removed == null) {
+                    return null;
+                }
+                current.ban = null;
+                size--;
+                compact(grandparent, parent, current, range.address);
+                return removed;
+            }
+            grandparent = parent;
+            parent = current;
+            current = current.children[bit(range.address, current.length)];
+        }
+        return null;
+    }
+
+    // The ban of exactly this range, active or not, or null
+    synchronized Ban get(Range range) {
+        Node current = root(range.address);
+        while (current != null && current.length <= range.prefixLength
+                && commonPrefix(current.prefix, range.address, current.length) == current.length) {
+            if (current.length == range.prefixLength) {
+                return current.ban;
+            }
+            current = current.children[bit(range.address, current.length)];
+        }
+        return null;
+    }
+
+    // The most specific active ban covering the address, or null
+    synchronized Ban match(InetAddress address, long now) {
+        byte[] bytes = address.getAddress();
+        Ban found = null;
+        Node current = root(bytes);
+        while (current != null && commonPrefix(current.prefix, bytes, current.length) == current.length) {
+            if (current.ban != null && current.ban.isActive(now)) {
+                found = current.ban;
+            }
+            if (current.length == bytes.length * 8) {
+                break;
+            }
+            current = current.children[bit(bytes, current.length)];
+        }
+        return found;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    // Every ban, IPv4 first, each family in address order
+    synchronized List<Ban> list() {
+        List<Ban> bans = new ArrayList<>(size);
+        collect(root4, bans);
+        collect(root6, bans);
+        return bans;
+    }
+
+    // Replaces the bans with those in the file, all or nothing: a file that fails to read leaves them as they were
+    synchronized void load(File file) throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+        AddressBans loaded = new AddressBans();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+                throw new IOException(file.getName() + " is not an address ban file");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] address = new byte[in.readUnsignedByte()];
+                in.readFully(address);
+                int prefixLength = in.readUnsignedByte();
+                if ((address.length != 4 && address.length != 16) || prefixLength > address.length * 8) {
+                    throw new IOException(file.getName() + " is damaged");
+                }
+                Range range = new Range(masked(address, prefixLength), prefixLength);
+                loaded.add(range, new Ban(range.toString(), in.readLong(), in.readLong(), in.readUTF(), in.readUTF()));
+            }
+        }
+        root4 = loaded.root4;
+        root6 = loaded.root6;
+        size = loaded.size;
+    }
+
+    // Writes every ban to a temporary file that then replaces the old one
+    void save(File file) throws IOException {
+        List<Ban> bans = list();
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath()), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+                out.writeInt(bans.size());
+                for (Ban ban : bans) {
+                    Range range = parse(ban.range);
+                    out.writeByte(range.address.length);
+                    out.write(range.address);
+                    out.writeByte(range.prefixLength);
+                    out.writeLong(ban.until);
+                    out.writeLong(ban.created);
+                    out.writeUTF(ban.actor);
+                    out.writeUTF(ban.reason);
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    // Drops a node left without a ban: a leaf is unlinked, a node with one child is replaced by it, and a
+    // parent that only branched towards the leaf is merged away too
+    private void compact(Node grandparent, Node parent, Node node, byte[] address) {
+        if (node.children[0] != null && node.children[1] != null) {
+            return;
+        }
+        Node only = node.children[0] != null ? node.children[0] : node.children[1];
+        replaceChild(parent, node, only, address);
+        if (only == null && parent != null && parent.ban == null) {
+            Node sibling = parent.children[0] != null ? parent.children[0] : parent.children[1];
+            replaceChild(grandparent, parent, sibling, address);
+        }
+    }
+
+    private void replaceChild(Node parent, Node child, Node replacement, byte[] address) {
+        if (parent == null) {
+            setRoot(address, replacement);
+        } else {
+            parent.children[parent.children[0] == child ? 0 : 1] = replacement;
+        }
+    }
+
+    private Node root(byte[] address) {
+        return address.length == 4 ? root4 : root6;
+    }
+
+    private void setRoot(byte[] address, Node node) {
+        if (address.length == 4) {
+            root4 = node;
+        } else {
+            root6 = node;
+        }
+    }
+
+    private static void collect(Node node, List<Ban> bans) {
+        if (node == null) {
+            return;
+        }
+        if (node.ban != null) {
+            bans.add(node.ban);
+        }
+        collect(node.children[0], bans);
+        collect(node.children[1], bans);
+    }
+
+    // Number of leading bits, up to 'limit', that the two addresses share
+    private static int commonPrefix(byte[] a, byte[] b, int limit) {
+        int bits = 0;
+        for (int i = 0; bits < limit; i++) {
+            int difference = (a[i] ^ b[i]) & 0xFF;
+            if (difference != 0) {
+                return Math.min(limit, bits + Integer.numberOfLeadingZeros(difference) - 24);
+            }
+            bits += 8;
+        }
+        return Math.min(limit, bits);
+    }
+
+    private static int bit(byte[] address, int index) {
+        return (address[index >>> 3] >>> (7 - (index & 7))) & 1;
+    }
+
+    private static byte[] masked(byte[] address, int prefixLength) {
+        byte[] result = address.clone();
+        for (int i = 0; i < result.length; i++) {
+            int keep = prefixLength - i * 8;
+            if (keep <= 0) {
+                result[i] = 0;
+            } else if (keep < 8) {
+                result[i] &= (byte) (0xFF << (8 - keep));
+            }
+        }
+        return result;
+    }
+}
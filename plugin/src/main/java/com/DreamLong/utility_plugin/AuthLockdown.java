@@ -0,0 +1,70 @@
+package com.DreamLong.utility_plugin;
+
+import java.util.Arrays;
+
+// Online players who have not logged in yet, as a bitset of their entity ids. Movement, interaction and
+// command events test it with one array read instead of hashing the player's UUID into the session map;
+// move events alone fire many times a second for every player.
+//
+// Entity ids only grow, so the set covers the words from the lowest locked id upwards and starts over
+// once nobody is locked. Players who have not logged in are kicked after the login timeout, so the
+// covered range stays small. Main thread only.
+final class AuthLockdown {
+
+    private static final int INITIAL_WORDS = 16;
+
+    private long[] words = new long[INITIAL_WORDS];
+    // Index of the entity id word held in words[0]
+    private int base;
+    private int count;
+
+    void lock(int entityId) {
+        int word = entityId >>> 6;
+        if (count == 0) {
+            words = new long[INITIAL_WORDS];
+            base = word;
+        } else if (word < base) {
+            int used = words.length;
+            while (words[used - 1] == 0L) {
+                used--;
+            }
+            // Leave room below as well, so ids a little lower do not grow it again
+            long[] grown = new long[capacity(used + base - word)];
+            int shift = Math.min(grown.length - used, base);
+            System.arraycopy(words, 0, grown, shift, used);
+            words = grown;
+            base -= shift;
+        } else if (word - base >= words.length) {
+            words = Arrays.copyOf(words, capacity(word - base + 1));
+        }
+        long bit = 1L << entityId;
+        if ((words[word - base] & bit) == 0L) {
+            words[word - base] |= bit;
+            count++;
+        }
+    }
+
+    void unlock(int entityId) {
+        if (!isLocked(entityId)) {
+            return;
+        }
+        words[(entityId >>> 6) - base] &= ~(1L << entityId);
+        count--;
+    }
+
+    boolean isLocked(int entityId) {
+        if (count == 0) {
+            return false;
+        }
+        int word = (entityId >>> 6) - base;
+        return word >= 0 && word < words.length && (words[word] & (1L << entityId)) != 0L;
+    }
+
+    int size() {
+        return count;
+    }
+
+    private static int capacity(int needed) {
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+}
@@ -0,0 +1,430 @@
+package com.DreamLong.utility_plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Point-in-time backups of the player store: a full archive, then archives of only the records written
+// since the previous backup.
+//
+// A backup holds the store's write lock, which only the persistence thread takes, so the store does not
+// change while it is read and saves made meanwhile wait in the write-behind queue. Reads are another
+// matter: loads on a join or a command share the store with the backup, and an engine that serializes
+// its own access (the binary one) makes them wait for the records the backup is reading at that moment.
+// Archives are gzip streams written as records are read, each with a CRC32 over its records and a
+// SHA-256 sidecar over the file. A restore checks every archive of the chain before using any of it.
+final class BackupManager {
+
+    private static final int MAGIC = 0x55544246; // "UTBF"
+    private static final int FORMAT = 1;
+    private static final byte FULL = 0;
+    private static final byte INCREMENTAL = 1;
+    private static final Pattern ARCHIVE_NAME = Pattern.compile("backup-(\\d{6})-(full|incr)\\.gz");
+
+    static final class Result {
+        final String name;
+        final boolean full;
+        final int records;
+        final long bytes;
+
+        Result(String name, boolean full, int records, long bytes) {
+            this.name = name;
+            this.full = full;
+            this.records = records;
+            this.bytes = bytes;
+        }
+    }
+
+    private final File folder;
+    private final PlayerStore store;
+    private final Lock storeWrites;
+    private final Logger logger;
+    private final int maxChainLength;
+    private final int keepFull;
+    // Accounts written to the store since the last backup
+    private Set<UUID> changed = ConcurrentHashMap.newKeySet();
+    // False until a full backup exists that 'changed' is relative to
+    private volatile boolean haveBase;
+
+    BackupManager(File folder, PlayerStore store, Lock storeWrites, Logger logger, int maxChainLength, int keepFull) throws IOException {
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            throw new IOException("Could not create " + folder);
+        }
+        this.folder = folder;
+        this.store = store;
+        this.storeWrites = storeWrites;
+        this.logger = logger;
+        this.maxChainLength = Math.max(1, maxChainLength);
+        this.keepFull = Math.max(1, keepFull);
+        loadPendingChanges();
+    }
+
+    // Notes accounts just written to the store; called by the persistence thread while holding the write lock
+    void recordWritten(Collection<UUID> playerUUIDs) {
+        changed.addAll(playerUUIDs);
+    }
+
+    // Writes the next archive: a full one when there is no usable base or the chain is long, otherwise
+    // only the accounts written since the last backup
+    synchronized Result backup(boolean forceFull) throws IOException {
+        TreeMap<Integer, File> archives = listArchives();
+        int sequence = archives.isEmpty() ? 1 : archives.lastKey() + 1;
+        int chainLength = 0;
+        for (File archive : archives.descendingMap().values()) {
+            if (archive.getName().endsWith("-full.gz")) {
+                break;
+            }
+            chainLength++;
+        }
+        boolean full = forceFull || !haveBase || archives.isEmpty() || chainLength + 1 >= maxChainLength;
+
+        String name = String.format("backup-%06d-%s.gz", sequence, full ? "full" : "incr");
+        File target = new File(folder, name);
+        File temp = new File(folder, name + ".tmp");
+        File sidecar = new File(folder, name + ".sha256");
+        int records;
+        Set<UUID> captured;
+        storeWrites.lock();
+        try {
+            records = writeArchive(temp, full, sequence, full ? -1 : archives.lastKey());
+            // The snapshot is complete; later writes belong to the next backup
+            captured = changed;
+            changed = ConcurrentHashMap.newKeySet();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp.toPath());
+            Files.deleteIfExists(sidecar.toPath());
+            throw e;
+        } finally {
+            storeWrites.unlock();
+        }
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // No archive took the snapshot, so its accounts still belong to the next backup
+            changed.addAll(captured);
+            Files.deleteIfExists(temp.toPath());
+            Files.deleteIfExists(sidecar.toPath());
+            throw e;
+        }
+        haveBase = true;
+        if (full) {
+            pruneOldChains();
+        }
+        return new Result(name, full, records, target.length());
+    }
+
+    // Archive names, oldest first
+    synchronized List<String> list() {
+        List<String> names = new ArrayList<>();
+        for (File archive : listArchives().values()) {
+            names.add(archive.getName());
+        }
+        return names;
+    }
+
+    // Reads the state captured by an archive ('latest' for the newest): its full base plus every incremental
+    // up to it. Every archive is verified before anything is returned.
+    synchronized Map<UUID, PlayerData> restore(String name) throws IOException {
+        TreeMap<Integer, File> archives = listArchives();
+        if (archives.isEmpty()) {
+            throw new IOException("There are no backups");
+        }
+        int targetSequence = -1;
+        if (name.equalsIgnoreCase("latest")) {
+            targetSequence = archives.lastKey();
+        } else {
+            for (Map.Entry<Integer, File> entry : archives.entrySet()) {
+                if (entry.getValue().getName().equals(name) || entry.getValue().getName().equals(name + ".gz")) {
+                    targetSequence = entry.getKey();
+                }
+            }
+        }
+        if (targetSequence < 0) {
+            throw new IOException("Unknown backup " + name);
+        }
+
+        // Walk back to the full archive the target builds on
+        List<File> chain = new ArrayList<>();
+        for (File archive : archives.headMap(targetSequence, true).descendingMap().values()) {
+            chain.add(0, archive);
+            if (archive.getName().endsWith("-full.gz")) {
+                break;
+            }
+        }
+        if (!chain.get(0).getName().endsWith("-full.gz")) {
+            throw new IOException("The full backup that " + name + " builds on is missing");
+        }
+
+        Map<UUID, PlayerData> records = new HashMap<>();
+        int previous = -1;
+        for (File archive : chain) {
+            verifyChecksum(archive);
+            previous = readArchive(archive, previous, records);
+        }
+        return records;
+    }
+
+    // Keeps the set of changed accounts across a clean restart; without it the next backup is a full one
+    synchronized void savePendingChanges() throws IOException {
+        if (!haveBase) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (UUID playerUUID : changed) {
+            text.append(playerUUID).append('\n');
+        }
+        File file = new File(folder, "pending-changes.txt");
+        File temp = new File(folder, "pending-changes.txt.tmp");
+        Files.write(temp.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void loadPendingChanges() throws IOException {
+        File file = new File(folder, "pending-changes.txt");
+        if (!file.isFile()) {
+            return;
+        }
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!line.isEmpty()) {
+                try {
+                    changed.add(UUID.fromString(line.trim()));
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Ignoring '" + line + "' in " + file.getName() + ".");
+                }
+            }
+        }
+        // Consumed: after a crash the file is gone and the next backup starts a new chain
+        Files.delete(file.toPath());
+        haveBase = !listArchives().isEmpty();
+    }
+
+    // Streams the snapshot through gzip while hashing the compressed bytes for the sidecar
+    private int writeArchive(File file, boolean full, int sequence, int previous) throws IOException {
+        MessageDigest digest = sha256();
+        CRC32 crc = new CRC32();
+        int[] count = new int[1];
+        try (OutputStream fileOut = Files.newOutputStream(file.toPath());
+             DigestOutputStream digestOut = new DigestOutputStream(new BufferedOutputStream(fileOut, 1 << 16), digest);
+             GZIPOutputStream gzip = new GZIPOutputStream(digestOut, 1 << 16)) {
+            DataOutputStream header = new DataOutputStream(gzip);
+            header.writeInt(MAGIC);
+            header.writeInt(FORMAT);
+            header.writeByte(full ? FULL : INCREMENTAL);
+            header.writeInt(sequence);
+            header.writeInt(previous);
+            header.writeLong(System.currentTimeMillis());
+
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(gzip, crc));
+            IOException[] failure = new IOException[1];
+            if (full) {
+                // forEach may call back from several threads
+                store.forEach((playerUUID, data) -> {
+                    synchronized (out) {
+                        if (failure[0] == null) {
+                            try {
+                                writeRecord(out, playerUUID, data);
+                                count[0]++;
+                            } catch (IOException e) {
+                                failure[0] = e;
+                            }
+                        }
+                    }
+                });
+            } else {
+                for (UUID playerUUID : changed) {
+                    PlayerData data = store.load(playerUUID);
+                    if (data != null) {
+                        writeRecord(out, playerUUID, data);
+                        count[0]++;
+                    }
+                }
+            }
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            out.writeByte(0);
+            out.flush();
+            header.writeInt(count[0]);
+            header.writeInt((int) crc.getValue());
+            header.flush();
+        }
+        writeSidecar(file, digest);
+        return count[0];
+    }
+
+    // Adds an archive's records to 'records' and returns its sequence number
+    private int readArchive(File file, int expectedPrevious, Map<UUID, PlayerData> records) throws IOException {
+        Map<UUID, PlayerData> read = new LinkedHashMap<>();
+        CRC32 crc = new CRC32();
+        int sequence;
+        try (InputStream fileIn = new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16);
+             GZIPInputStream gzip = new GZIPInputStream(fileIn, 1 << 16)) {
+            DataInputStream header = new DataInputStream(gzip);
+            if (header.readInt() != MAGIC || header.readInt() != FORMAT) {
+                throw new IOException(file.getName() + " is not a backup of a supported format");
+            }
+            boolean full = header.readByte() == FULL;
+            sequence = header.readInt();
+            int previous = header.readInt();
+            header.readLong();
+            if (!full && previous != expectedPrevious) {
+                throw new IOException(file.getName() + " follows backup " + previous + ", but the chain has " + expectedPrevious);
+            }
+
+            DataInputStream in = new DataInputStream(new CheckedInputStream(gzip, crc));
+            while (in.readByte() != 0) {
+                UUID playerUUID = new UUID(in.readLong(), in.readLong());
+                read.put(playerUUID, readRecord(in));
+            }
+            int count = header.readInt();
+            int checksum = header.readInt();
+            if (count != read.size() || checksum != (int) crc.getValue()) {
+                throw new IOException(file.getName() + " failed its record check");
+            }
+        }
+        records.putAll(read);
+        return sequence;
+    }
+
+    private static void writeRecord(DataOutputStream out, UUID playerUUID, PlayerData data) throws IOException {
+        out.writeByte(1);
+        out.writeLong(playerUUID.getMostSignificantBits());
+        out.writeLong(playerUUID.getLeastSignificantBits());
+        writeNullable(out, data.getUsername());
+        writeNullable(out, data.getPasswordHash());
+        out.writeLong(data.getWarns());
+        out.writeLong(data.getStartWarns());
+        out.writeLong(data.getMutes());
+        out.writeLong(data.getStartMutes());
+        out.writeLong(data.getBans());
+        out.writeLong(data.getStartBans());
+        out.writeLong(data.getLoginAttempts());
+    }
+
+    private static PlayerData readRecord(DataInputStream in) throws IOException {
+        String username = readNullable(in);
+        String passwordHash = readNullable(in);
+        return new PlayerData(username, passwordHash, in.readLong(), in.readLong(), in.readLong(), in.readLong(),
+                in.readLong(), in.readLong(), in.readLong());
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Records the SHA-256 of the finished archive next to it, under the archive's final name
+    private void writeSidecar(File temp, MessageDigest digest) throws IOException {
+        String archiveName = temp.getName().substring(0, temp.getName().length() - ".tmp".length());
+        String line = toHex(digest.digest()) + "  " + archiveName + "\n";
+        Files.write(new File(folder, archiveName + ".sha256").toPath(), line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void verifyChecksum(File archive) throws IOException {
+        File sidecar = new File(folder, archive.getName() + ".sha256");
+        if (!sidecar.isFile()) {
+            throw new IOException(archive.getName() + " has no checksum file");
+        }
+        String expected = new String(Files.readAllBytes(sidecar.toPath()), StandardCharsets.UTF_8).trim().split("\\s+")[0];
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(new BufferedInputStream(Files.newInputStream(archive.toPath()), 1 << 16), digest)) {
+            byte[] buffer = new byte[1 << 16];
+            while (in.read(buffer) >= 0) {
+                // Reading feeds the digest
+            }
+        }
+        if (!toHex(digest.digest()).equalsIgnoreCase(expected)) {
+            throw new IOException(archive.getName() + " does not match its checksum");
+        }
+    }
+
+    // Deletes whole chains older than the newest 'keepFull' full backups
+    private void pruneOldChains() {
+        TreeMap<Integer, File> archives = listArchives();
+        int fullSeen = 0;
+        Integer cutoff = null;
+        for (Map.Entry<Integer, File> entry : archives.descendingMap().entrySet()) {
+            if (entry.getValue().getName().endsWith("-full.gz") && ++fullSeen == keepFull) {
+                cutoff = entry.getKey();
+                break;
+            }
+        }
+        if (cutoff == null) {
+            return;
+        }
+        for (File archive : archives.headMap(cutoff, false).values()) {
+            File sidecar = new File(folder, archive.getName() + ".sha256");
+            if (!archive.delete() || (sidecar.exists() && !sidecar.delete())) {
+                logger.warning("Could not delete the old backup " + archive.getName() + ".");
+            }
+        }
+    }
+
+    private TreeMap<Integer, File> listArchives() {
+        TreeMap<Integer, File> archives = new TreeMap<>();
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = ARCHIVE_NAME.matcher(file.getName());
+                if (matcher.matches()) {
+                    archives.put(Integer.parseInt(matcher.group(1)), file);
+                }
+            }
+        }
+        return archives;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
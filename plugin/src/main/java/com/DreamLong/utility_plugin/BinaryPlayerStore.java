@@ -0,0 +1,393 @@
+package com.DreamLong.utility_plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+// Keeps every player record in one binary file of fixed-width, checksummed slots.
+//
+// Counter and timestamp changes are written in place over the numeric block of a slot. The username and
+// password hash are checksummed apart from the numbers, so a write torn by a crash costs only the counters.
+// A change to the username or password hash appends a new slot and then frees the old one,
+// so a crash never leaves an account without a valid record. Freed slots are reclaimed by compaction.
+final class BinaryPlayerStore implements PlayerStore {
+
+    private static final int MAGIC = 0x55545044; // "UTPD"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 256;
+
+    // Slot layout
+    private static final int STATUS = 0;
+    private static final int UUID_MOST = 1;
+    private static final int UUID_LEAST = 9;
+    private static final int USERNAME_LENGTH = 17;
+    private static final int USERNAME = 18;
+    private static final int USERNAME_CAPACITY = PlayerData.MAX_USERNAME_BYTES;
+    private static final int PASSWORD_LENGTH = 50;
+    private static final int PASSWORD = 51;
+    private static final int PASSWORD_CAPACITY = PlayerData.MAX_PASSWORD_HASH_BYTES;
+    private static final int HEADER_CRC = 179;
+    private static final int NUMBERS = 183;
+    private static final int NUMBERS_SIZE = 7 * Long.BYTES;
+    private static final int NUMBERS_CRC = NUMBERS + NUMBERS_SIZE;
+
+    private static final byte FREE = 0;
+    private static final byte LIVE = 1;
+    private static final int NULL_LENGTH = 0xFF;
+
+    // Compact once at least this many slots are free and they make up this share of the file
+    private static final int COMPACT_MIN_FREE = 256;
+    private static final double COMPACT_FREE_RATIO = 0.25;
+
+    // Records forEach reads per turn of the lock
+    private static final int FOR_EACH_CHUNK = 256;
+
+    private final File file;
+    private final Logger logger;
+    private final Map<UUID, Integer> slots = new HashMap<>();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final ByteBuffer stored = ByteBuffer.allocate(NUMBERS);
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private int slotCount;
+    private int freeSlots;
+
+    BinaryPlayerStore(File file, Logger logger) throws IOException {
+        this.file = file;
+        this.logger = logger;
+        this.channel = open(file);
+        scan();
+    }
+
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+
+    @Override
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    @Override
+    public synchronized PlayerData load(UUID playerUUID) throws IOException {
+        Integer slot = slots.get(playerUUID);
+        if (slot == null) {
+            return null;
+        }
+        readSlot(slot);
+        return decode();
+    }
+
+    // Visits every account stored when the call starts, in file order. Records are read a chunk at a time
+    // and handed to the consumer with the store unlocked, so a slow consumer does not hold up loads and saves;
+    // accounts are looked up again for every chunk, which keeps the walk valid across a compaction.
+    @Override
+    public void forEach(BiConsumer<UUID, PlayerData> consumer) throws IOException {
+        UUID[] accounts;
+        synchronized (this) {
+            UUID[] byIndex = new UUID[slotCount];
+            for (Map.Entry<UUID, Integer> entry : slots.entrySet()) {
+                byIndex[entry.getValue()] = entry.getKey();
+            }
+            accounts = new UUID[slots.size()];
+            int next = 0;
+            for (UUID playerUUID : byIndex) {
+                if (playerUUID != null) {
+                    accounts[next++] = playerUUID;
+                }
+            }
+        }
+
+        UUID[] chunkUUIDs = new UUID[FOR_EACH_CHUNK];
+        PlayerData[] chunkData = new PlayerData[FOR_EACH_CHUNK];
+        for (int from = 0; from < accounts.length; from += FOR_EACH_CHUNK) {
+            int to = Math.min(accounts.length, from + FOR_EACH_CHUNK);
+            int read = 0;
+            synchronized (this) {
+                for (int i = from; i < to; i++) {
+                    Integer slot = slots.get(accounts[i]);
+                    if (slot == null) {
+                        continue;
+                    }
+                    readSlot(slot);
+                    chunkUUIDs[read] = accounts[i];
+                    chunkData[read++] = decode();
+                }
+            }
+            for (int i = 0; i < read; i++) {
+                consumer.accept(chunkUUIDs[i], chunkData[i]);
+            }
+        }
+    }
+
+    // Writes a batch of records and forces them to disk once for the whole batch. A record whose fields do
+    // not fit a slot is skipped and reported; failing the batch would only hold up the records after it.
+    @Override
+    public synchronized void saveAll(Map<UUID, PlayerData> batch) throws IOException {
+        for (Map.Entry<UUID, PlayerData> entry : batch.entrySet()) {
+            try {
+                write(entry.getKey(), entry.getValue());
+            } catch (IllegalArgumentException e) {
+                logger.severe("Could not store the record of " + entry.getKey() + " in " + file.getName() + ": " + e.getMessage());
+            }
+        }
+        channel.force(false);
+    }
+
+    // Rewrites the file without free slots once enough of them have accumulated
+    @Override
+    public synchronized void maintain() throws IOException {
+        if (freeSlots < COMPACT_MIN_FREE || freeSlots < slotCount * COMPACT_FREE_RATIO) {
+            return;
+        }
+        long start = System.nanoTime();
+        int before = slotCount;
+        File compacted = new File(file.getPath() + ".compact");
+        Map<UUID, Integer> moved = new HashMap<>();
+        try (FileChannel target = open(compacted)) {
+            target.truncate(0);
+            writeHeader(target);
+            int next = 0;
+            for (int index = 0; index < slotCount; index++) {
+                readSlot(index);
+                if (record.get(STATUS) != LIVE) {
+                    continue;
+                }
+                UUID playerUUID = new UUID(record.getLong(UUID_MOST), record.getLong(UUID_LEAST));
+                Integer slot = slots.get(playerUUID);
+                if (slot == null || slot != index) {
+                    continue;
+                }
+                record.clear();
+                target.write(record, offset(next));
+                moved.put(playerUUID, next);
+                next++;
+            }
+            target.force(true);
+        }
+        channel.close();
+        try {
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The old file is untouched and the slot map still describes it
+            Files.deleteIfExists(compacted.toPath());
+            throw e;
+        } finally {
+            channel = open(file);
+        }
+        slots.clear();
+        slots.putAll(moved);
+        slotCount = moved.size();
+        freeSlots = 0;
+        logger.info("Compacted " + file.getName() + " from " + before + " to " + slotCount + " slots in "
+                + (System.nanoTime() - start) / 1_000_000L + " ms.");
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(true);
+        channel.close();
+    }
+
+    private void write(UUID playerUUID, PlayerData data) throws IOException {
+        Integer slot = slots.get(playerUUID);
+        encode(playerUUID, data);
+
+        if (slot != null && sameHeader(slot)) {
+            // Only counters and timestamps can differ: overwrite the numeric block in place
+            record.position(NUMBERS).limit(NUMBERS_CRC + Integer.BYTES);
+            channel.write(record, offset(slot) + NUMBERS);
+            return;
+        }
+
+        // New account or changed username/password: append, then release the old slot
+        int index = slotCount++;
+        record.clear();
+        channel.write(record, offset(index));
+        slots.put(playerUUID, index);
+        if (slot != null) {
+            channel.force(false);
+            release(slot);
+        }
+    }
+
+    // Compares the encoded header of the pending record with the one stored in a slot
+    private boolean sameHeader(int index) throws IOException {
+        stored.clear();
+        long position = offset(index);
+        while (stored.hasRemaining()) {
+            if (channel.read(stored, position + stored.position()) < 0) {
+                return false;
+            }
+        }
+        for (int i = UUID_MOST; i < NUMBERS; i++) {
+            if (stored.get(i) != record.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void release(int index) throws IOException {
+        ByteBuffer status = ByteBuffer.allocate(1);
+        status.put(0, FREE);
+        channel.write(status, offset(index) + STATUS);
+        freeSlots++;
+    }
+
+    private void scan() throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            writeHeader(channel);
+            channel.force(true);
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE) {
+            throw new IOException(file.getName() + " is not a player store of version " + VERSION);
+        }
+
+        slotCount = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+        int corrupt = 0;
+        int repaired = 0;
+        for (int index = 0; index < slotCount; index++) {
+            readSlot(index);
+            if (record.get(STATUS) != LIVE) {
+                freeSlots++;
+                continue;
+            }
+            if (record.getInt(HEADER_CRC) != checksum(UUID_MOST, HEADER_CRC)) {
+                corrupt++;
+                freeSlots++;
+                continue;
+            }
+            UUID playerUUID = new UUID(record.getLong(UUID_MOST), record.getLong(UUID_LEAST));
+            if (record.getInt(NUMBERS_CRC) != checksum(NUMBERS, NUMBERS_CRC)) {
+                // Only an in-place counter update can tear the numeric block; the account itself is intact,
+                // so keep it and start its counters over rather than lose the login
+                logger.warning("Reset the counters of " + getString(USERNAME_LENGTH, USERNAME) + " (" + playerUUID
+                        + ") in " + file.getName() + " after an interrupted write.");
+                for (int i = NUMBERS; i < NUMBERS_CRC; i++) {
+                    record.put(i, (byte) 0);
+                }
+                record.putInt(NUMBERS_CRC, checksum(NUMBERS, NUMBERS_CRC));
+                record.position(NUMBERS).limit(NUMBERS_CRC + Integer.BYTES);
+                channel.write(record, offset(index) + NUMBERS);
+                repaired++;
+            }
+            // A later slot for the same account is the newer version of it
+            Integer previous = slots.put(playerUUID, index);
+            if (previous != null) {
+                release(previous);
+            }
+        }
+        if (corrupt > 0) {
+            logger.warning("Ignored " + corrupt + " player records with bad checksums in " + file.getName() + ".");
+        }
+        if (repaired > 0) {
+            channel.force(false);
+        }
+    }
+
+    private static void writeHeader(FileChannel target) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE);
+        header.clear();
+        target.write(header, 0);
+    }
+
+    private void readSlot(int index) throws IOException {
+        record.clear();
+        long position = offset(index);
+        while (record.hasRemaining()) {
+            if (channel.read(record, position + record.position()) < 0) {
+                throw new IOException("Unexpected end of " + file.getName() + " in slot " + index);
+            }
+        }
+    }
+
+    private void encode(UUID playerUUID, PlayerData data) {
+        record.clear();
+        for (int i = 0; i < RECORD_SIZE; i++) {
+            record.put(i, (byte) 0);
+        }
+        record.put(STATUS, LIVE);
+        record.putLong(UUID_MOST, playerUUID.getMostSignificantBits());
+        record.putLong(UUID_LEAST, playerUUID.getLeastSignificantBits());
+        putString(USERNAME_LENGTH, USERNAME, USERNAME_CAPACITY, data.getUsername());
+        putString(PASSWORD_LENGTH, PASSWORD, PASSWORD_CAPACITY, data.getPasswordHash());
+        record.putInt(HEADER_CRC, checksum(UUID_MOST, HEADER_CRC));
+        putNumbers(data);
+    }
+
+    private void putNumbers(PlayerData data) {
+        record.putLong(NUMBERS, data.getWarns());
+        record.putLong(NUMBERS + 8, data.getStartWarns());
+        record.putLong(NUMBERS + 16, data.getMutes());
+        record.putLong(NUMBERS + 24, data.getStartMutes());
+        record.putLong(NUMBERS + 32, data.getBans());
+        record.putLong(NUMBERS + 40, data.getStartBans());
+        record.putLong(NUMBERS + 48, data.getLoginAttempts());
+        record.putInt(NUMBERS_CRC, checksum(NUMBERS, NUMBERS_CRC));
+    }
+
+    private PlayerData decode() {
+        return new PlayerData(getString(USERNAME_LENGTH, USERNAME), getString(PASSWORD_LENGTH, PASSWORD),
+                record.getLong(NUMBERS), record.getLong(NUMBERS + 8),
+                record.getLong(NUMBERS + 16), record.getLong(NUMBERS + 24),
+                record.getLong(NUMBERS + 32), record.getLong(NUMBERS + 40),
+                record.getLong(NUMBERS + 48));
+    }
+
+    private void putString(int lengthOffset, int offset, int capacity, String value) {
+        if (value == null) {
+            record.put(lengthOffset, (byte) NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > capacity) {
+            throw new IllegalArgumentException("Value of " + bytes.length + " bytes does not fit a " + capacity + " byte field");
+        }
+        record.put(lengthOffset, (byte) bytes.length);
+        record.put(offset, bytes);
+    }
+
+    private String getString(int lengthOffset, int offset) {
+        int length = record.get(lengthOffset) & 0xFF;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int checksum(int from, int to) {
+        crc.reset();
+        crc.update(record.array(), from, to - from);
+        return (int) crc.getValue();
+    }
+
+    private static long offset(int index) {
+        return HEADER_SIZE + (long) index * RECORD_SIZE;
+    }
+
+    private static FileChannel open(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+}
@@ -0,0 +1,328 @@
+package com.DreamLong.utility_plugin;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Streams accounts and bans in and out of JSON files shaped as one top-level array of flat objects: the
+// server's banned-players.json and banned-ips.json, and the plugin's own account format. Records are handed over one at a time,
+// so a file of any size is never held in memory.
+final class BulkTransfer {
+
+    enum Format {
+        // Every field of every account, for moving accounts between servers or storage engines
+        NATIVE("native", "accounts.json"),
+        // The server's ban list: uuid, name, created, source, expires, reason
+        BANNED_PLAYERS("banned-players", "banned-players.json"),
+        // The server's address ban list: ip, created, source, expires, reason; ranges are written as CIDR
+        BANNED_IPS("banned-ips", "banned-ips.json");
+
+        final String id;
+        final String defaultFile;
+
+        Format(String id, String defaultFile) {
+            this.id = id;
+            this.defaultFile = defaultFile;
+        }
+
+        static Format byId(String id) {
+            for (Format format : values()) {
+                if (format.id.equalsIgnoreCase(id)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Receives each record of a file in order
+    interface RecordSink {
+        void accept(Map<String, Object> record) throws IOException;
+    }
+
+    // Dates in banned-players.json, e.g. "2024-05-01 18:03:12 +0200"
+    private static final DateTimeFormatter VANILLA_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss Z", Locale.ROOT);
+    private static final String FOREVER = "forever";
+
+    private BulkTransfer() {
+    }
+
+    // Parses the file incrementally and passes each object of the top-level array to the sink
+    static void read(File file, RecordSink sink) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            new JSONParser().parse(reader, new RecordHandler(sink));
+        } catch (ParseException e) {
+            throw new IOException(file.getName() + " is not valid JSON at position " + e.getPosition(), e);
+        }
+    }
+
+    // Writes records as a JSON array into a temporary file that replaces the target once finished
+    static final class RecordWriter implements Closeable {
+        private final File target;
+        private final File temp;
+        private final Writer out;
+        private boolean first = true;
+        private boolean finished;
+
+        RecordWriter(File target) throws IOException {
+            File parent = target.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Could not create " + parent);
+            }
+            this.target = target;
+            this.temp = new File(target.getPath() + ".tmp");
+            this.out = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8);
+            out.write('[');
+        }
+
+        synchronized void write(Map<String, Object> record) throws IOException {
+            out.write(first ? "\n  " : ",\n  ");
+            out.write(JSONObject.toJSONString(record));
+            first = false;
+        }
+
+        // Completes the array and moves it into place
+        void finish() throws IOException {
+            out.write(first ? "]\n" : "\n]\n");
+            out.close();
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+        }
+
+        // Discards the temporary file unless finish() succeeded
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                out.close();
+                Files.deleteIfExists(temp.toPath());
+            }
+        }
+    }
+
+    static Map<String, Object> toNative(UUID playerUUID, PlayerData data) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("uuid", playerUUID.toString());
+        record.put("username", data.getUsername());
+        record.put("password", data.getPasswordHash());
+        record.put("warns", data.getWarns());
+        record.put("start-warns", data.getStartWarns());
+        record.put("mutes", data.getMutes());
+        record.put("start-mutes", data.getStartMutes());
+        record.put("bans", data.getBans());
+        record.put("start-bans", data.getStartBans());
+        record.put("login-attempts", data.getLoginAttempts());
+        return record;
+    }
+
+    static PlayerData fromNative(Map<String, Object> record) throws IOException {
+        return new PlayerData(string(record, "username"), string(record, "password"), number(record, "warns"),
+                number(record, "start-warns"), number(record, "mutes"), number(record, "start-mutes"),
+                number(record, "bans"), number(record, "start-bans"), number(record, "login-attempts"));
+    }
+
+    // A ban in the server's format; only accounts whose ban is still running are exported
+    static Map<String, Object> toBannedPlayer(UUID playerUUID, PlayerData data, String source) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("uuid", playerUUID.toString());
+        record.put("name", data.getUsername());
+        record.put("created", formatDate(data.getStartBans() > 0 ? data.getStartBans() : System.currentTimeMillis()));
+        record.put("source", source);
+        long deadline = PunishmentIndex.banDeadline(data.getBans(), data.getStartBans());
+        record.put("expires", deadline == PunishmentIndex.PERMANENT ? FOREVER : formatDate(deadline));
+        record.put("reason", "Banned by an operator.");
+        return record;
+    }
+
+    // Reads a banned-players.json entry into the plugin's ban fields (bans in minutes, -1 = permanent);
+    // returns {bans, startBans}, or null when the ban has already expired
+    static long[] fromBannedPlayer(Map<String, Object> record, long now) throws IOException {
+        long created = parseDate(record.get("created"), now);
+        Object expires = record.get("expires");
+        if (expires == null || FOREVER.equalsIgnoreCase(expires.toString())) {
+            return new long[] {-1L, created};
+        }
+        long deadline = parseDate(expires, now);
+        if (deadline <= now) {
+            return null;
+        }
+        long minutes = Math.max(1L, (deadline - created + TimeUnit.MINUTES.toMillis(1) - 1) / TimeUnit.MINUTES.toMillis(1));
+        return new long[] {minutes, created};
+    }
+
+    static Map<String, Object> toBannedIp(AddressBans.Ban ban) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        AddressBans.Range range = AddressBans.parse(ban.range);
+        boolean single = range != null && range.prefixLength == range.address.length * 8;
+        record.put("ip", single ? ban.range.substring(0, ban.range.indexOf('/')) : ban.range);
+        record.put("created", formatDate(ban.created));
+        record.put("source", ban.actor);
+        record.put("expires", ban.until == PunishmentIndex.PERMANENT ? FOREVER : formatDate(ban.until));
+        record.put("reason", ban.reason);
+        return record;
+    }
+
+    // Reads a banned-ips.json entry, or returns null when the ban has already expired
+    static AddressBans.Ban fromBannedIp(Map<String, Object> record, long now) throws IOException {
+        String ip = string(record, "ip");
+        AddressBans.Range range = ip == null ? null : AddressBans.parse(ip);
+        if (range == null) {
+            throw new IOException("A record has an invalid ip: " + ip);
+        }
+        long created = parseDate(record.get("created"), now);
+        Object expires = record.get("expires");
+        long until = expires == null || FOREVER.equalsIgnoreCase(expires.toString()) ? PunishmentIndex.PERMANENT : parseDate(expires, now);
+        if (until <= now) {
+            return null;
+        }
+        String source = string(record, "source");
+        String reason = string(record, "reason");
+        return new AddressBans.Ban(range.toString(), until, created, source == null ? "import" : source,
+                reason == null ? "Banned by an operator." : reason);
+    }
+
+    static UUID uuid(Map<String, Object> record) throws IOException {
+        Object value = record.get("uuid");
+        if (value == null) {
+            throw new IOException("A record has no uuid");
+        }
+        try {
+            return UUID.fromString(value.toString());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("A record has an invalid uuid: " + value);
+        }
+    }
+
+    static String string(Map<String, Object> record, String key) {
+        Object value = record.get(key);
+        return value == null ? null : value.toString();
+    }
+
+    private static long number(Map<String, Object> record, String key) throws IOException {
+        Object value = record.get(key);
+        if (value == null) {
+            return 0L;
+        }
+        if (!(value instanceof Number)) {
+            throw new IOException("'" + key + "' is not a number in the record of " + record.get("uuid"));
+        }
+        return ((Number) value).longValue();
+    }
+
+    private static String formatDate(long millis) {
+        return VANILLA_DATE.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()));
+    }
+
+    private static long parseDate(Object value, long fallback) throws IOException {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return ZonedDateTime.parse(value.toString(), VANILLA_DATE).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IOException("Unreadable date '" + value + "'");
+        }
+    }
+
+    // Collects the primitive fields of each object in the top-level array; nested values are skipped
+    private static final class RecordHandler implements ContentHandler {
+        private final RecordSink sink;
+        private int depth;
+        private Map<String, Object> record;
+        private String key;
+
+        RecordHandler(RecordSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void startJSON() {
+        }
+
+        @Override
+        public void endJSON() {
+        }
+
+        @Override
+        public boolean startArray() throws ParseException {
+            if (depth != 0 && record == null) {
+                throw new ParseException(ParseException.ERROR_UNEXPECTED_TOKEN);
+            }
+            depth++;
+            return true;
+        }
+
+        @Override
+        public boolean endArray() {
+            depth--;
+            return true;
+        }
+
+        @Override
+        public boolean startObject() throws ParseException {
+            if (depth == 0) {
+                throw new ParseException(ParseException.ERROR_UNEXPECTED_TOKEN);
+            }
+            if (depth == 1) {
+                record = new LinkedHashMap<>();
+            }
+            depth++;
+            return true;
+        }
+
+        @Override
+        public boolean endObject() throws IOException {
+            depth--;
+            if (depth == 1) {
+                Map<String, Object> finished = record;
+                record = null;
+                sink.accept(finished);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean startObjectEntry(String key) {
+            if (depth == 2) {
+                this.key = key;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean endObjectEntry() {
+            if (depth == 2) {
+                key = null;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean primitive(Object value) throws ParseException {
+            if (depth == 2 && key != null) {
+                record.put(key, value);
+            } else if (depth < 2) {
+                throw new ParseException(ParseException.ERROR_UNEXPECTED_TOKEN);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.DreamLong.utility_plugin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Finds blocked words in chat messages with an Aho-Corasick automaton, in one pass over the message
+// however many words are configured.
+//
+// Text is folded before matching: letters are lowercased, common accents and leetspeak digits and symbols
+// become plain letters ("Sh1t" and "$hit" read as "shit"), punctuation inside a word is skipped ("s.h.i.t")
+// and runs of spaces count as one. Words only match as whole words, so a blocked "ass" leaves "class"
+// alone; fragments match anywhere, even inside other words.
+//
+// The automaton is a full transition table (state x character class), so each character of a message
+// costs one array read. An instance is immutable and safe to share between chat threads; a reload
+// compiles a new one and swaps the reference.
+final class ChatFilter {
+
+    // Folded value of characters that are skipped, and of whitespace
+    private static final char SKIP = '\0';
+    private static final char BREAK = ' ';
+
+    private static final char[] ASCII = new char[128];
+    // Accented lowercase letters from U+00E0 to U+00FF, by their base letter
+    private static final String LATIN1 = "aaaaaa\0ceeeeiiii\0nooooo\0ouuuuy\0y";
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9') {
+                ASCII[c] = c;
+            } else if (c >= 'A' && c <= 'Z') {
+                ASCII[c] = (char) (c + ('a' - 'A'));
+            } else if (Character.isWhitespace(c)) {
+                ASCII[c] = BREAK;
+            } else {
+                ASCII[c] = SKIP;
+            }
+        }
+        ASCII['0'] = 'o';
+        ASCII['1'] = 'i';
+        ASCII['3'] = 'e';
+        ASCII['4'] = 'a';
+        ASCII['5'] = 's';
+        ASCII['7'] = 't';
+        ASCII['8'] = 'b';
+        ASCII['9'] = 'g';
+        ASCII['@'] = 'a';
+        ASCII['$'] = 's';
+    }
+
+    // Character class of every folded character; 0 is any character no pattern contains
+    private final char[] classes;
+    private final int classCount;
+    // transitions[state * classCount + class] is the next state; state 0 is the root
+    private final int[] transitions;
+    // Length in folded characters of the pattern ending at each state, or 0
+    private final int[] outputLength;
+    private final boolean[] wholeWord;
+    // Nearest state reached through failure links that ends a pattern, or -1
+    private final int[] outputLink;
+    private final int maxLength;
+    private final int patternCount;
+
+    private ChatFilter(char[] classes, int classCount, int[] transitions, int[] outputLength, boolean[] wholeWord,
+                       int[] outputLink, int maxLength, int patternCount) {
+        this.classes = classes;
+        this.classCount = classCount;
+        this.transitions = transitions;
+        this.outputLength = outputLength;
+        this.wholeWord = wholeWord;
+        this.outputLink = outputLink;
+        this.maxLength = maxLength;
+        this.patternCount = patternCount;
+    }
+
+    // Builds the automaton; blank entries are ignored, and an entry listed as both a word and a fragment
+    // matches as a fragment
+    static ChatFilter compile(Collection<String> words, Collection<String> fragments) {
+        // Trie of the folded patterns, with one map of children per node while building
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        List<Boolean> whole = new ArrayList<>();
+        children.add(new HashMap<>());
+        lengths.add(0);
+        whole.add(true);
+        char[] classes = new char[Character.MAX_VALUE + 1];
+        int classCount = 1;
+        int maxLength = 0;
+        int patternCount = 0;
+
+        List<String> patterns = new ArrayList<>(words);
+        patterns.addAll(fragments);
+        for (int i = 0; i < patterns.size(); i++) {
+            String pattern = foldPattern(patterns.get(i));
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int j = 0; j < pattern.length(); j++) {
+                char c = pattern.charAt(j);
+                if (classes[c] == 0) {
+                    classes[c] = (char) classCount++;
+                }
+                Integer next = children.get(state).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new HashMap<>());
+                    lengths.add(0);
+                    whole.add(true);
+                    children.get(state).put(c, next);
+                }
+                state = next;
+            }
+            if (lengths.get(state) == 0) {
+                patternCount++;
+            }
+            lengths.set(state, pattern.length());
+            whole.set(state, whole.get(state) && i < words.size());
+            maxLength = Math.max(maxLength, pattern.length());
+        }
+
+        int stateCount = children.size();
+        int[] transitions = new int[stateCount * classCount];
+        int[] outputLength = new int[stateCount];
+        boolean[] wholeWord = new boolean[stateCount];
+        int[] outputLink = new int[stateCount];
+        int[] failure = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            outputLength[state] = lengths.get(state);
+            wholeWord[state] = whole.get(state);
+        }
+
+        // Breadth-first, so every state's failure target is complete before the state itself; a missing
+        // edge takes the failure target's edge, which turns the trie into a full transition table
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        outputLink[0] = -1;
+        for (Map.Entry<Character, Integer> edge : children.get(0).entrySet()) {
+            transitions[classes[edge.getKey()]] = edge.getValue();
+            failure[edge.getValue()] = 0;
+            outputLink[edge.getValue()] = -1;
+            queue.add(edge.getValue());
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int fail = failure[state];
+            System.arraycopy(transitions, fail * classCount, transitions, state * classCount, classCount);
+            for (Map.Entry<Character, Integer> edge : children.get(state).entrySet()) {
+                int child = edge.getValue();
+                int childFailure = transitions[fail * classCount + classes[edge.getKey()]];
+                failure[child] = childFailure;
+                outputLink[child] = outputLength[childFailure] > 0 ? childFailure : outputLink[childFailure];
+                transitions[state * classCount + classes[edge.getKey()]] = child;
+                queue.add(child);
+            }
+        }
+        return new ChatFilter(classes, classCount, transitions, outputLength, wholeWord, outputLink, maxLength, patternCount);
+    }
+
+    // Number of distinct patterns after folding
+    int size() {
+        return patternCount;
+    }
+
+    // Returns the text with every match replaced by asterisks, or null if nothing matched
+    String censor(String text) {
+        if (patternCount == 0) {
+            return null;
+        }
+        char[] censored = null;
+        // Text index and kind of the last maxLength + 1 folded characters, to map a match back onto the text
+        int window = maxLength + 1;
+        int[] positions = new int[window];
+        boolean[] breaks = new boolean[window];
+        // A whole-word match waits for the next folded character to show whether the word ends there
+        int pendingStart = -1;
+        int pendingEnd = -1;
+        long count = 0;
+        boolean lastBreak = true;
+        int state = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char folded = fold(text.charAt(i));
+            if (folded == SKIP || folded == BREAK && lastBreak) {
+                continue;
+            }
+            boolean isBreak = folded == BREAK;
+            if (pendingStart >= 0) {
+                if (isBreak) {
+                    censored = mask(text, censored, pendingStart, pendingEnd);
+                }
+                pendingStart = -1;
+            }
+            int slot = (int) (count % window);
+            positions[slot] = i;
+            breaks[slot] = isBreak;
+            lastBreak = isBreak;
+
+            state = transitions[state * classCount + classes[folded]];
+            int output = outputLength[state] > 0 ? state : outputLink[state];
+            for (; output >= 0; output = outputLink[output]) {
+                int length = outputLength[output];
+                int start = positions[(int) ((count - length + 1) % window)];
+                if (!wholeWord[output]) {
+                    censored = mask(text, censored, start, i);
+                } else if (count - length < 0 || breaks[(int) ((count - length) % window)]) {
+                    // The longest whole word ending here is found first
+                    if (pendingStart < 0) {
+                        pendingStart = start;
+                        pendingEnd = i;
+                    }
+                }
+            }
+            count++;
+        }
+        if (pendingStart >= 0) {
+            censored = mask(text, censored, pendingStart, pendingEnd);
+        }
+        return censored == null ? null : new String(censored);
+    }
+
+    private static char[] mask(String text, char[] censored, int start, int end) {
+        if (censored == null) {
+            censored = text.toCharArray();
+        }
+        for (int i = start; i <= end; i++) {
+            if (!Character.isWhitespace(censored[i])) {
+                censored[i] = '*';
+            }
+        }
+        return censored;
+    }
+
+    // Folds a configured entry the same way as chat, trimming spaces at either end
+    private static String foldPattern(String pattern) {
+        StringBuilder folded = new StringBuilder(pattern.length());
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = fold(pattern.charAt(i));
+            if (c == SKIP || c == BREAK && (folded.length() == 0 || folded.charAt(folded.length() - 1) == BREAK)) {
+                continue;
+            }
+            folded.append(c);
+        }
+        int length = folded.length();
+        if (length > 0 && folded.charAt(length - 1) == BREAK) {
+            folded.setLength(length - 1);
+        }
+        return folded.toString();
+    }
+
+    private static char fold(char c) {
+        if (c < 128) {
+            return ASCII[c];
+        }
+        if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+            return BREAK;
+        }
+        if (!Character.isLetterOrDigit(c)) {
+            return SKIP;
+        }
+        c = Character.toLowerCase(c);
+        if (c >= '\u00E0' && c <= '\u00FF') {
+            char base = LATIN1.charAt(c - '\u00E0');
+            return base == '\0' ? c : base;
+        }
+        return c;
+    }
+}
@@ -0,0 +1,120 @@
+package com.DreamLong.utility_plugin;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// Punishments applied automatically when a warning brings a player to a number of warnings within a window,
+// e.g. 3 in 7 days -> 1 hour mute. Only the warning being issued is evaluated: a rule fires when the count
+// in its window reaches its threshold exactly, so it is not applied again by later warnings.
+final class EscalationLadder {
+
+    enum Action {
+        KICK,
+        MUTE,
+        TEMPBAN,
+        BAN
+    }
+
+    static final class Rule {
+        final int count;
+        final long windowMillis;
+        final Action action;
+        // Duration for MUTE and TEMPBAN; -1 makes a MUTE permanent
+        final long minutes;
+        // Index of windowMillis in windows()
+        int window;
+
+        Rule(int count, long windowMillis, Action action, long minutes) {
+            this.count = count;
+            this.windowMillis = windowMillis;
+            this.action = action;
+            this.minutes = minutes;
+        }
+
+        long getWindowDays() {
+            return TimeUnit.MILLISECONDS.toDays(windowMillis);
+        }
+    }
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final long[] windows;
+
+    // Reads the rules from the 'warnings.escalation' list; 'extraWindows' are other window lengths
+    // the ledger is asked about
+    EscalationLadder(List<Map<?, ?>> config, Logger logger, long... extraWindows) {
+        for (Map<?, ?> entry : config) {
+            try {
+                int count = Integer.parseInt(String.valueOf(entry.get("count")));
+                long days = Long.parseLong(String.valueOf(entry.get("days")));
+                Action action = Action.valueOf(String.valueOf(entry.get("action")).toUpperCase(Locale.ROOT));
+                Object minutes = entry.get("minutes");
+                long duration = minutes == null ? -1L : Long.parseLong(String.valueOf(minutes));
+                if (count < 1 || days < 1 || (action == Action.TEMPBAN && duration < 1)) {
+                    throw new IllegalArgumentException("count and days must be positive and tempbans need minutes");
+                }
+                rules.add(new Rule(count, TimeUnit.DAYS.toMillis(days), action, duration));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Ignoring escalation rule " + entry + ": " + e.getMessage());
+            }
+        }
+        // The most severe rule wins when several fire on the same warning
+        rules.sort(Comparator.comparing((Rule rule) -> rule.action).thenComparingLong(rule -> rule.minutes == -1 ? Long.MAX_VALUE : rule.minutes));
+
+        List<Long> lengths = new ArrayList<>();
+        for (long extra : extraWindows) {
+            if (!lengths.contains(extra)) {
+                lengths.add(extra);
+            }
+        }
+        for (Rule rule : rules) {
+            if (!lengths.contains(rule.windowMillis)) {
+                lengths.add(rule.windowMillis);
+            }
+            rule.window = lengths.indexOf(rule.windowMillis);
+        }
+        windows = new long[lengths.size()];
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = lengths.get(i);
+        }
+    }
+
+    // Window lengths to create the ledger with; extra windows come first, in the order given
+    long[] windows() {
+        return windows.clone();
+    }
+
+    // Index in windows() of a window length passed to the constructor
+    int windowIndex(long windowMillis) {
+        for (int i = 0; i < windows.length; i++) {
+            if (windows[i] == windowMillis) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No window of " + windowMillis + " ms");
+    }
+
+    // Warnings a history must hold for every rule to be reachable
+    int getMaxCount() {
+        int max = 0;
+        for (Rule rule : rules) {
+            max = Math.max(max, rule.count);
+        }
+        return max;
+    }
+
+    // The most severe rule triggered by the warning just added to 'history', or null
+    Rule evaluate(WarningLedger.History history, long now) {
+        Rule triggered = null;
+        for (Rule rule : rules) {
+            if (history.count(rule.window, now) == rule.count) {
+                triggered = rule;
+            }
+        }
+        return triggered;
+    }
+}
@@ -0,0 +1,113 @@
+package com.DreamLong.utility_plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+// Exchanges sync batches through a folder every server can reach, such as a shared mount or, for local
+// testing, a folder used by several servers on one machine.
+//
+// Each batch becomes one file named <millis>-<server>-<sequence>.delta, written under a temporary name and
+// renamed into place, so readers never see a partial batch. Files older than the retention time are
+// deleted by whichever server sees them first.
+final class FolderSyncTransport implements SyncTransport {
+
+    private static final String SUFFIX = ".delta";
+
+    private final File folder;
+    private final String serverId;
+    private final long retentionMillis;
+    private final Logger logger;
+    private final Set<String> seen = new HashSet<>();
+    private long sequence;
+
+    FolderSyncTransport(File folder, String serverId, long retentionMillis, Logger logger) throws IOException {
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            throw new IOException("Could not create " + folder);
+        }
+        this.folder = folder;
+        this.serverId = serverId;
+        this.retentionMillis = retentionMillis;
+        this.logger = logger;
+    }
+
+    @Override
+    public String getName() {
+        return "folder " + folder.getPath();
+    }
+
+    @Override
+    public void publish(byte[] batch) throws IOException {
+        String name = String.format("%013d-%s-%06d", System.currentTimeMillis(), serverId, sequence++);
+        File temp = new File(folder, "." + name + ".tmp");
+        File target = new File(folder, name + SUFFIX);
+        Files.write(temp.toPath(), batch);
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        seen.add(target.getName());
+    }
+
+    @Override
+    public List<byte[]> poll() throws IOException {
+        String[] names = folder.list((dir, name) -> name.endsWith(SUFFIX));
+        if (names == null) {
+            throw new IOException("Could not list " + folder);
+        }
+        // The millisecond prefix makes name order publication order
+        Arrays.sort(names);
+
+        long expireBefore = System.currentTimeMillis() - retentionMillis;
+        List<byte[]> batches = new ArrayList<>();
+        Set<String> present = new HashSet<>(Arrays.asList(names));
+        for (String name : names) {
+            long published = parseTime(name);
+            if (published >= 0 && published < expireBefore) {
+                deleteQuietly(new File(folder, name));
+                continue;
+            }
+            if (!seen.add(name) || serverId.equals(parseServer(name))) {
+                continue;
+            }
+            try {
+                batches.add(Files.readAllBytes(new File(folder, name).toPath()));
+            } catch (NoSuchFileException e) {
+                // Expired and removed by another server in the meantime
+            }
+        }
+        seen.retainAll(present);
+        return batches;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static long parseTime(String name) {
+        int dash = name.indexOf('-');
+        try {
+            return dash > 0 ? Long.parseLong(name.substring(0, dash)) : -1L;
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    // The server field of <millis>-<server>-<sequence>.delta; server ids never contain '-'
+    private static String parseServer(String name) {
+        int first = name.indexOf('-');
+        int last = name.lastIndexOf('-');
+        return first > 0 && last > first ? name.substring(first + 1, last) : null;
+    }
+
+    private void deleteQuietly(File file) {
+        if (!file.delete() && file.exists()) {
+            logger.fine("Could not delete expired sync file " + file.getName());
+        }
+    }
+}
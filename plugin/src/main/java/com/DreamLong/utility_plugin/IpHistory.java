@@ -0,0 +1,349 @@
+package com.DreamLong.utility_plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+// The addresses every account joined from, and the accounts seen on every address.
+//
+// Each (account, address) pair is one row in a set of parallel primitive arrays, threaded onto two linked
+// lists: one per account and one per address. Accounts and addresses are found through open-addressing
+// tables, so there is no object per entry: a pair costs 28 bytes, an account and an address a few dozen.
+// IPv6 addresses are kept by their /64 prefix, which is what one subscriber is normally given.
+//
+// An address shared by more than 'maxAccountsPerAddress' accounts (a school, a proxy, a carrier NAT) stops
+// taking new accounts, which keeps every per-address lookup bounded.
+final class IpHistory {
+
+    private static final int MAGIC = 0x55544950; // "UTIP"
+    private static final int FORMAT = 1;
+    private static final int NONE = -1;
+
+    private final int maxAccountsPerAddress;
+
+    // Accounts, numbered in order of first sight
+    private long[] accountMsb = new long[1024];
+    private long[] accountLsb = new long[1024];
+    private int[] accountHead = new int[1024];
+    private int accountCount;
+    // Open-addressing table of account numbers + 1; 0 is empty
+    private int[] accountSlots = new int[2048];
+
+    // Addresses, in an open-addressing table of their keys
+    private long[] addressKeys = new long[2048];
+    private int[] addressHead = filled(2048);
+    private int[] addressAccounts = new int[2048];
+    private int addressCount;
+
+    // One row per (account, address) pair
+    private long[] pairAddress = new long[4096];
+    private int[] pairAccount = new int[4096];
+    private long[] pairLastSeen = new long[4096];
+    private int[] nextByAccount = new int[4096];
+    private int[] nextByAddress = new int[4096];
+    private int pairCount;
+
+    private boolean dirty;
+
+    IpHistory(int maxAccountsPerAddress) {
+        this.maxAccountsPerAddress = Math.max(1, maxAccountsPerAddress);
+    }
+
+    // Records a join; returns false if the address is shared by too many accounts to take another
+    synchronized boolean record(UUID playerUUID, InetAddress address, long now) {
+        return add(accountId(playerUUID.getMostSignificantBits(), playerUUID.getLeastSignificantBits(), true), key(address), now);
+    }
+
+    // Returns the first other account seen on the address that passes the test, or null; costs at most
+    // maxAccountsPerAddress tests
+    synchronized UUID findAccount(InetAddress address, UUID exclude, Predicate<UUID> test) {
+        int slot = addressSlot(key(address));
+        if (addressHead[slot] == NONE) {
+            return null;
+        }
+        for (int pair = addressHead[slot]; pair != NONE; pair = nextByAddress[pair]) {
+            UUID other = uuid(pairAccount[pair]);
+            if (!other.equals(exclude) && test.test(other)) {
+                return other;
+            }
+        }
+        return null;
+    }
+
+    // Every other account that shares an address with this one, with the number of shared addresses
+    synchronized Map<UUID, Integer> alts(UUID playerUUID) {
+        Map<UUID, Integer> alts = new LinkedHashMap<>();
+        int account = accountId(playerUUID.getMostSignificantBits(), playerUUID.getLeastSignificantBits(), false);
+        if (account == NONE) {
+            return alts;
+        }
+        for (int pair = accountHead[account]; pair != NONE; pair = nextByAccount[pair]) {
+            int slot = addressSlot(pairAddress[pair]);
+            for (int other = addressHead[slot]; other != NONE; other = nextByAddress[other]) {
+                if (pairAccount[other] != account) {
+                    alts.merge(uuid(pairAccount[other]), 1, Integer::sum);
+                }
+            }
+        }
+        return alts;
+    }
+
+    synchronized int getAccountCount() {
+        return accountCount;
+    }
+
+    synchronized int getAddressCount() {
+        return addressCount;
+    }
+
+    synchronized int getPairCount() {
+        return pairCount;
+    }
+
+    // Replaces the history with the one in the file, all or nothing: a file that fails to read leaves it as it was
+    synchronized void load(File file) throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+        IpHistory loaded = new IpHistory(maxAccountsPerAddress);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+                throw new IOException(file.getName() + " is not an IP history file");
+            }
+            int accounts = in.readInt();
+            int[] ids = new int[accounts];
+            for (int i = 0; i < accounts; i++) {
+                ids[i] = loaded.accountId(in.readLong(), in.readLong(), true);
+            }
+            int pairs = in.readInt();
+            for (int i = 0; i < pairs; i++) {
+                int account = in.readInt();
+                if (account < 0 || account >= accounts) {
+                    throw new IOException(file.getName() + " is damaged");
+                }
+                loaded.add(ids[account], in.readLong(), in.readLong());
+            }
+        }
+        accountMsb = loaded.accountMsb;
+        accountLsb = loaded.accountLsb;
+        accountHead = loaded.accountHead;
+        accountCount = loaded.accountCount;
+        accountSlots = loaded.accountSlots;
+        addressKeys = loaded.addressKeys;
+        addressHead = loaded.addressHead;
+        addressAccounts = loaded.addressAccounts;
+        addressCount = loaded.addressCount;
+        pairAddress = loaded.pairAddress;
+        pairAccount = loaded.pairAccount;
+        pairLastSeen = loaded.pairLastSeen;
+        nextByAccount = loaded.nextByAccount;
+        nextByAddress = loaded.nextByAddress;
+        pairCount = loaded.pairCount;
+        dirty = false;
+    }
+
+    // Writes the history if it changed since the last save. The arrays are copied under the lock and
+    // written outside it, so joins are not held up by the disk.
+    void saveIfDirty(File file) throws IOException {
+        long[] msb;
+        long[] lsb;
+        long[] addresses;
+        int[] accounts;
+        long[] lastSeen;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            msb = Arrays.copyOf(accountMsb, accountCount);
+            lsb = Arrays.copyOf(accountLsb, accountCount);
+            addresses = Arrays.copyOf(pairAddress, pairCount);
+            accounts = Arrays.copyOf(pairAccount, pairCount);
+            lastSeen = Arrays.copyOf(pairLastSeen, pairCount);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath()), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+                out.writeInt(msb.length);
+                for (int i = 0; i < msb.length; i++) {
+                    out.writeLong(msb[i]);
+                    out.writeLong(lsb[i]);
+                }
+                out.writeInt(addresses.length);
+                for (int i = 0; i < addresses.length; i++) {
+                    out.writeInt(accounts[i]);
+                    out.writeLong(addresses[i]);
+                    out.writeLong(lastSeen[i]);
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp.toPath());
+            synchronized (this) {
+                dirty = true;
+            }
+            throw e;
+        }
+    }
+
+    // IPv4 addresses fill the low 32 bits; IPv6 addresses use their /64 prefix, whose high 32 bits are
+    // never all zero for routable addresses
+    static long key(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            return ((bytes[0] & 0xFFL) << 24) | ((bytes[1] & 0xFFL) << 16) | ((bytes[2] & 0xFFL) << 8) | (bytes[3] & 0xFFL);
+        }
+        long prefix = 0L;
+        for (int i = 0; i < 8; i++) {
+            prefix = (prefix << 8) | (bytes[i] & 0xFFL);
+        }
+        return prefix;
+    }
+
+    private boolean add(int account, long address, long now) {
+        int slot = addressSlot(address);
+        if (addressHead[slot] != NONE) {
+            for (int pair = addressHead[slot]; pair != NONE; pair = nextByAddress[pair]) {
+                if (pairAccount[pair] == account) {
+                    if (now > pairLastSeen[pair]) {
+                        pairLastSeen[pair] = now;
+                        dirty = true;
+                    }
+                    return true;
+                }
+            }
+            if (addressAccounts[slot] >= maxAccountsPerAddress) {
+                return false;
+            }
+        }
+
+        if (pairCount == pairAccount.length) {
+            int capacity = pairCount * 2;
+            pairAddress = Arrays.copyOf(pairAddress, capacity);
+            pairAccount = Arrays.copyOf(pairAccount, capacity);
+            pairLastSeen = Arrays.copyOf(pairLastSeen, capacity);
+            nextByAccount = Arrays.copyOf(nextByAccount, capacity);
+            nextByAddress = Arrays.copyOf(nextByAddress, capacity);
+        }
+        int pair = pairCount++;
+        pairAddress[pair] = address;
+        pairAccount[pair] = account;
+        pairLastSeen[pair] = now;
+        nextByAccount[pair] = accountHead[account];
+        accountHead[account] = pair;
+
+        if (addressHead[slot] == NONE) {
+            addressKeys[slot] = address;
+            addressAccounts[slot] = 0;
+            addressCount++;
+        }
+        nextByAddress[pair] = addressHead[slot];
+        addressHead[slot] = pair;
+        addressAccounts[slot]++;
+        dirty = true;
+        if (addressCount * 2 > addressKeys.length) {
+            growAddresses();
+        }
+        return true;
+    }
+
+    // Finds the address's slot, or the empty slot where it belongs
+    private int addressSlot(long address) {
+        int mask = addressKeys.length - 1;
+        int slot = (int) mix(address) & mask;
+        while (addressHead[slot] != NONE && addressKeys[slot] != address) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void growAddresses() {
+        long[] keys = addressKeys;
+        int[] heads = addressHead;
+        int[] counts = addressAccounts;
+        addressKeys = new long[keys.length * 2];
+        addressHead = filled(keys.length * 2);
+        addressAccounts = new int[keys.length * 2];
+        for (int i = 0; i < keys.length; i++) {
+            if (heads[i] != NONE) {
+                int slot = addressSlot(keys[i]);
+                addressKeys[slot] = keys[i];
+                addressHead[slot] = heads[i];
+                addressAccounts[slot] = counts[i];
+            }
+        }
+    }
+
+    // Returns the account's number, adding it if 'create' is set, or NONE
+    private int accountId(long msb, long lsb, boolean create) {
+        int mask = accountSlots.length - 1;
+        int slot = (int) mix(msb ^ Long.rotateLeft(lsb, 32)) & mask;
+        while (accountSlots[slot] != 0) {
+            int account = accountSlots[slot] - 1;
+            if (accountMsb[account] == msb && accountLsb[account] == lsb) {
+                return account;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!create) {
+            return NONE;
+        }
+        if (accountCount == accountMsb.length) {
+            int capacity = accountCount * 2;
+            accountMsb = Arrays.copyOf(accountMsb, capacity);
+            accountLsb = Arrays.copyOf(accountLsb, capacity);
+            accountHead = Arrays.copyOf(accountHead, capacity);
+        }
+        int account = accountCount++;
+        accountMsb[account] = msb;
+        accountLsb[account] = lsb;
+        accountHead[account] = NONE;
+        accountSlots[slot] = account + 1;
+        if (accountCount * 2 > accountSlots.length) {
+            int[] slots = new int[accountSlots.length * 2];
+            int newMask = slots.length - 1;
+            for (int i = 0; i < accountCount; i++) {
+                int s = (int) mix(accountMsb[i] ^ Long.rotateLeft(accountLsb[i], 32)) & newMask;
+                while (slots[s] != 0) {
+                    s = (s + 1) & newMask;
+                }
+                slots[s] = i + 1;
+            }
+            accountSlots = slots;
+        }
+        return account;
+    }
+
+    private UUID uuid(int account) {
+        return new UUID(accountMsb[account], accountLsb[account]);
+    }
+
+    // Murmur3 finalizer, so sequential addresses spread over the table
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static int[] filled(int length) {
+        int[] array = new int[length];
+        Arrays.fill(array, NONE);
+        return array;
+    }
+}
@@ -0,0 +1,55 @@
+package com.DreamLong.utility_plugin;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// Trips when joins arrive faster than the configured server-wide rate. While open, only accounts the
+// server already knows may join, which keeps bot floods of fresh names out without locking out regulars.
+final class JoinCircuitBreaker {
+
+    private static final Object JOIN_KEY = new Object();
+
+    private final RateLimiter joinRate;
+    private final long cooldownMillis;
+    private final Logger logger;
+    private final AtomicLong openUntil = new AtomicLong();
+    private final LongAdder trips = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    JoinCircuitBreaker(int perMinute, int burst, long cooldownSeconds, Logger logger) {
+        this.joinRate = new RateLimiter(1, perMinute, burst);
+        this.cooldownMillis = TimeUnit.SECONDS.toMillis(Math.max(1L, cooldownSeconds));
+        this.logger = logger;
+    }
+
+    // Records a join attempt and decides whether it may proceed
+    boolean admit(boolean knownAccount) {
+        long now = System.currentTimeMillis();
+        long until = openUntil.get();
+        if (!joinRate.tryAcquire(JOIN_KEY) && until <= now && openUntil.compareAndSet(until, now + cooldownMillis)) {
+            trips.increment();
+            logger.warning("Join rate limit exceeded; only known accounts may join for the next "
+                    + TimeUnit.MILLISECONDS.toSeconds(cooldownMillis) + " seconds (" + shed.sum() + " joins refused so far).");
+        }
+        if (!knownAccount && openUntil.get() > now) {
+            shed.increment();
+            return false;
+        }
+        return true;
+    }
+
+    boolean isOpen() {
+        return openUntil.get() > System.currentTimeMillis();
+    }
+
+    long getTrips() {
+        return trips.sum();
+    }
+
+    // Joins refused while the breaker was open
+    long getShed() {
+        return shed.sum();
+    }
+}
@@ -0,0 +1,146 @@
+package com.DreamLong.utility_plugin;
+
+// Every player-facing message, with its path in messages.yml and the placeholders it accepts.
+// Arguments are passed to Messages.render in the order the placeholders are listed here.
+enum Message {
+    // General
+    PLAYER_ONLY("general.player-only"),
+    PLAYER_NOT_FOUND("general.player-not-found"),
+    USAGE("general.usage", "usage"),
+
+    // Joining
+    JOIN_REGISTER_PROMPT("join.register-prompt"),
+    JOIN_REGISTER_DEADLINE("join.register-deadline", "time"),
+    JOIN_LOGIN_PROMPT("join.login-prompt"),
+    JOIN_TOO_OFTEN("join.too-often"),
+    JOIN_NEW_ACCOUNTS_PAUSED("join.new-accounts-paused"),
+    JOIN_REGISTER_TIMEOUT("join.register-timeout"),
+    JOIN_LOGIN_TIMEOUT("join.login-timeout"),
+
+    // Login and registration
+    LOGIN_ALREADY_LOGGED_IN("login.already-logged-in"),
+    LOGIN_NOT_REGISTERED("login.not-registered"),
+    LOGIN_SUCCESS("login.success"),
+    LOGIN_WRONG_PASSWORD("login.wrong-password", "attempt", "max"),
+    LOGIN_TOO_MANY_FAILURES("login.too-many-failures"),
+    LOGIN_REQUIRED("login.required"),
+    REGISTER_ALREADY_REGISTERED("register.already-registered"),
+    REGISTER_PASSWORDS_DIFFER("register.passwords-differ"),
+    REGISTER_SUCCESS("register.success"),
+    PASSWORD_PENDING("password.pending"),
+    PASSWORD_RATE_LIMITED("password.rate-limited"),
+    PASSWORD_BUSY("password.busy"),
+    PASSWORD_ERROR("password.error"),
+
+    // Chat
+    CHAT_NOT_LOGGED_IN("chat.not-logged-in"),
+    CHAT_MUTED("chat.muted"),
+    CHAT_FILTER_BLOCKED("chat.filter-blocked"),
+    CHAT_FILTER_WARNED("chat.filter-warned", "player", "message"),
+    CHAT_SPAM_FLOOD("chat.spam-flood"),
+    CHAT_SPAM_REPEAT("chat.spam-repeat"),
+    CHAT_SPAM_MUTED("chat.spam-muted", "player", "minutes"),
+
+    // Bans
+    BAN_SCREEN_PERMANENT("ban.screen-permanent"),
+    BAN_SCREEN_TEMPORARY("ban.screen-temporary", "minutes"),
+    BAN_KICK("ban.kick", "reason"),
+    BAN_BROADCAST("ban.broadcast", "player", "staff", "reason"),
+    UNBAN_NOT_BANNED("unban.not-banned", "player"),
+    UNBAN_SUCCESS("unban.success", "player"),
+    TEMPBAN_INVALID_DURATION("tempban.invalid-duration"),
+    TEMPBAN_KICK("tempban.kick", "minutes", "reason"),
+    TEMPBAN_BROADCAST("tempban.broadcast", "player", "staff", "reason"),
+    BAN_EXPIRED("ban.expired", "player"),
+
+    // Address bans
+    IPBAN_INVALID_ADDRESS("ipban.invalid-address", "address"),
+    IPBAN_SCREEN_PERMANENT("ipban.screen-permanent", "reason"),
+    IPBAN_SCREEN_TEMPORARY("ipban.screen-temporary", "minutes", "reason"),
+    IPBAN_BROADCAST("ipban.broadcast", "range", "staff", "reason"),
+    UNIPBAN_NOT_BANNED("unipban.not-banned", "range"),
+    UNIPBAN_BROADCAST("unipban.broadcast", "range", "staff"),
+
+    // Kicks
+    KICK_KICK("kick.kick", "reason"),
+    KICK_BROADCAST("kick.broadcast", "player", "staff", "reason"),
+
+    // Mutes
+    MUTE_ALREADY_MUTED("mute.already-muted", "player"),
+    MUTE_NOTIFY("mute.notify", "staff", "reason"),
+    MUTE_SUCCESS("mute.success", "player"),
+    MUTE_BROADCAST("mute.broadcast", "player", "staff", "reason"),
+    MUTE_EXPIRED("mute.expired"),
+    UNMUTE_NOT_MUTED("unmute.not-muted", "player"),
+    UNMUTE_NOTIFY("unmute.notify", "staff"),
+    UNMUTE_SUCCESS("unmute.success", "player"),
+
+    // Warnings
+    WARN_NOTIFY("warn.notify", "staff", "reason"),
+    WARN_SUCCESS("warn.success", "player", "warns"),
+    UNWARN_NONE("unwarn.none", "player"),
+    UNWARN_SUCCESS("unwarn.success", "player", "warns"),
+    UNWARN_NOTIFY("unwarn.notify"),
+    ESCALATION_REASON("escalation.reason", "warns", "days"),
+    ESCALATION_BROADCAST("escalation.broadcast", "player", "action", "reason"),
+
+    // Status checks
+    CHECKWARN_NONE("checkwarn.none", "player"),
+    CHECKWARN_RESULT("checkwarn.result", "player", "warns", "recent", "days"),
+    CHECKBAN_BANNED("checkban.banned", "player"),
+    CHECKBAN_NOT_BANNED("checkban.not-banned", "player"),
+    CHECKMUTE_MUTED("checkmute.muted", "player"),
+    CHECKMUTE_NOT_MUTED("checkmute.not-muted", "player"),
+
+    // Moderation history
+    HISTORY_EMPTY("history.empty", "player"),
+    HISTORY_NO_PAGE("history.no-page", "pages"),
+    HISTORY_HEADER("history.header", "player", "page", "pages", "total"),
+    HISTORY_ENTRY("history.entry", "time", "action", "staff", "reason"),
+    HISTORY_ERROR("history.error"),
+
+    // Alternate accounts
+    ALTS_NONE("alts.none", "player"),
+    ALTS_HEADER("alts.header", "player", "count"),
+    ALTS_ENTRY("alts.entry", "player", "shared"),
+    ALTS_ENTRY_BANNED("alts.entry-banned", "player", "shared"),
+    ALTS_FLAGGED("alts.flagged", "player", "alt"),
+    ALTS_DENIED_SCREEN("alts.denied-screen", "alt"),
+
+    // Login spawn
+    SETLOGIN_SUCCESS("setlogin.success"),
+
+    // Administration
+    UTILITY_STATS_HEADER("utility.stats-header"),
+    UTILITY_STATS_VALUE("utility.stats-value", "metric", "value"),
+    UTILITY_STATS_TIMING("utility.stats-timing", "metric", "count", "average", "p50", "p99"),
+    BACKUP_STARTED("utility.backup-started"),
+    BACKUP_DONE("utility.backup-done", "backup", "records", "size", "time"),
+    BACKUP_FAILED("utility.backup-failed", "error"),
+    BACKUP_BUSY("utility.backup-busy"),
+    BACKUP_UNAVAILABLE("utility.backup-unavailable"),
+    BACKUP_NONE("utility.backup-none"),
+    BACKUP_LIST_HEADER("utility.backup-list-header", "count"),
+    BACKUP_LIST_ENTRY("utility.backup-list-entry", "backup"),
+    RESTORE_STARTED("utility.restore-started", "backup"),
+    RESTORE_DONE("utility.restore-done", "records", "backup"),
+    RESTORE_FAILED("utility.restore-failed", "backup", "error"),
+    TRANSFER_BUSY("utility.transfer-busy"),
+    TRANSFER_NO_FILE("utility.transfer-no-file", "file"),
+    TRANSFER_PROGRESS("utility.transfer-progress", "records"),
+    IMPORT_STARTED("utility.import-started", "file"),
+    IMPORT_DONE("utility.import-done", "records", "skipped", "time"),
+    IMPORT_FAILED("utility.import-failed", "error", "records"),
+    EXPORT_STARTED("utility.export-started", "file"),
+    EXPORT_DONE("utility.export-done", "records", "file", "time"),
+    EXPORT_FAILED("utility.export-failed", "error"),
+    FILTER_RELOADED("utility.filter-reloaded", "entries");
+
+    final String path;
+    final String[] placeholders;
+
+    Message(String path, String... placeholders) {
+        this.path = path;
+        this.placeholders = placeholders;
+    }
+}
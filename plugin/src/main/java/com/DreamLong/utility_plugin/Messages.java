@@ -0,0 +1,251 @@
+package com.DreamLong.utility_plugin;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.file.YamlConfiguration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+// Player-facing messages from messages.yml, compiled once into Adventure components.
+//
+// Templates use '&' color codes (and &#RRGGBB), {prefix}, and the placeholders declared in Message.
+// Each template is parsed at load into styled text segments and placeholder slots, so rendering only
+// fills the slots; messages without placeholders are built once and reused as-is.
+// A load builds a complete new table and swaps it in, so rendering is safe from any thread.
+final class Messages {
+
+    private static final String PREFIX_PATH = "prefix";
+
+    // Legacy color codes 0-9 and a-f, in order
+    private static final NamedTextColor[] COLORS = {
+            NamedTextColor.BLACK, NamedTextColor.DARK_BLUE, NamedTextColor.DARK_GREEN, NamedTextColor.DARK_AQUA,
+            NamedTextColor.DARK_RED, NamedTextColor.DARK_PURPLE, NamedTextColor.GOLD, NamedTextColor.GRAY,
+            NamedTextColor.DARK_GRAY, NamedTextColor.BLUE, NamedTextColor.GREEN, NamedTextColor.AQUA,
+            NamedTextColor.RED, NamedTextColor.LIGHT_PURPLE, NamedTextColor.YELLOW, NamedTextColor.WHITE
+    };
+
+    // A placeholder position and the style in effect where it appears
+    private static final class Slot {
+        final int argument;
+        final Style style;
+
+        Slot(int argument, Style style) {
+            this.argument = argument;
+            this.style = style;
+        }
+    }
+
+    private static final class Template {
+        final Message message;
+        // Components and Slots in display order
+        final Object[] parts;
+        // The finished component when the template has no slots
+        final Component constant;
+
+        Template(Message message, List<Object> parts) {
+            this.message = message;
+            this.parts = parts.toArray();
+            boolean hasSlots = false;
+            for (Object part : this.parts) {
+                hasSlots |= part instanceof Slot;
+            }
+            this.constant = hasSlots ? null : build(this.parts, null);
+        }
+
+        Component render(Object[] args) {
+            if (args.length != message.placeholders.length) {
+                throw new IllegalArgumentException(message + " takes " + Arrays.toString(message.placeholders)
+                        + " but got " + args.length + " arguments");
+            }
+            return constant != null ? constant : build(parts, args);
+        }
+
+        private static Component build(Object[] parts, Object[] args) {
+            TextComponent.Builder builder = Component.text();
+            for (Object part : parts) {
+                if (part instanceof Slot) {
+                    Slot slot = (Slot) part;
+                    builder.append(argument(args[slot.argument], slot.style));
+                } else {
+                    builder.append((Component) part);
+                }
+            }
+            return builder.build();
+        }
+
+        // Components keep their own formatting under the slot's style; anything else is shown as text
+        private static Component argument(Object value, Style style) {
+            if (value instanceof Component) {
+                return Component.text("", style).append((Component) value);
+            }
+            return Component.text(String.valueOf(value), style);
+        }
+    }
+
+    private final Logger logger;
+    private volatile Map<Message, Template> templates = new EnumMap<>(Message.class);
+    private volatile String legacyPrefix = "";
+
+    Messages(Logger logger) {
+        this.logger = logger;
+    }
+
+    // Compiles every message, preferring the server's file and falling back to the bundled defaults
+    void load(YamlConfiguration config, YamlConfiguration defaults) {
+        String prefix = lookup(config, defaults, PREFIX_PATH);
+        if (prefix == null) {
+            prefix = "";
+        }
+        Map<Message, Template> compiled = new EnumMap<>(Message.class);
+        for (Message message : Message.values()) {
+            String raw = lookup(config, defaults, message.path);
+            if (raw == null) {
+                logger.warning("messages.yml has no entry for '" + message.path + "'.");
+                raw = message.path;
+            }
+            compiled.put(message, compile(message, raw.replace("{prefix}", prefix)));
+        }
+        templates = compiled;
+        legacyPrefix = ChatColor.translateAlternateColorCodes('&', prefix);
+    }
+
+    Component render(Message message, Object... args) {
+        return templates.get(message).render(args);
+    }
+
+    // The message without formatting, for text stored outside of chat such as ban reasons
+    String renderPlain(Message message, Object... args) {
+        return PlainTextComponentSerializer.plainText().serialize(render(message, args));
+    }
+
+    void send(Audience audience, Message message, Object... args) {
+        audience.sendMessage(render(message, args));
+    }
+
+    // Renders once and sends the same component to every player
+    void broadcast(Message message, Object... args) {
+        Bukkit.broadcast(render(message, args));
+    }
+
+    // Like broadcast, limited to players with the permission
+    void broadcast(String permission, Message message, Object... args) {
+        Bukkit.broadcast(render(message, args), permission);
+    }
+
+    // The prefix with section-sign color codes, for code that still works with plain strings
+    String getLegacyPrefix() {
+        return legacyPrefix;
+    }
+
+    private static String lookup(YamlConfiguration config, YamlConfiguration defaults, String path) {
+        String value = config != null ? config.getString(path) : null;
+        if (value == null && defaults != null) {
+            value = defaults.getString(path);
+        }
+        return value;
+    }
+
+    private Template compile(Message message, String raw) {
+        List<Object> parts = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        TextColor color = null;
+        Set<TextDecoration> decorations = EnumSet.noneOf(TextDecoration.class);
+
+        int i = 0;
+        while (i < raw.length()) {
+            char c = raw.charAt(i);
+
+            if (c == '&' && i + 1 < raw.length()) {
+                char code = Character.toLowerCase(raw.charAt(i + 1));
+                TextColor hex = code == '#' && i + 8 <= raw.length() ? parseHex(raw.substring(i + 1, i + 8)) : null;
+                int colorIndex = Character.digit(code, 16);
+                TextDecoration decoration = decoration(code);
+                if (hex != null || colorIndex >= 0 || decoration != null || code == 'r') {
+                    flush(parts, text, color, decorations);
+                    if (decoration != null) {
+                        decorations.add(decoration);
+                    } else {
+                        // Colors and &r reset formatting, as in legacy chat
+                        color = hex != null ? hex : colorIndex >= 0 ? COLORS[colorIndex] : null;
+                        decorations.clear();
+                    }
+                    i += hex != null ? 8 : 2;
+                    continue;
+                }
+            }
+
+            if (c == '{') {
+                int end = raw.indexOf('}', i);
+                int argument = end < 0 ? -1 : indexOf(message.placeholders, raw.substring(i + 1, end));
+                if (argument >= 0) {
+                    flush(parts, text, color, decorations);
+                    parts.add(new Slot(argument, style(color, decorations)));
+                    i = end + 1;
+                    continue;
+                }
+                if (end > i + 1) {
+                    logger.warning("Unknown placeholder " + raw.substring(i, end + 1) + " in messages.yml entry '" + message.path + "'.");
+                }
+            }
+
+            text.append(c);
+            i++;
+        }
+        flush(parts, text, color, decorations);
+        return new Template(message, parts);
+    }
+
+    private static void flush(List<Object> parts, StringBuilder text, TextColor color, Set<TextDecoration> decorations) {
+        if (text.length() > 0) {
+            parts.add(Component.text(text.toString(), style(color, decorations)));
+            text.setLength(0);
+        }
+    }
+
+    private static Style style(TextColor color, Set<TextDecoration> decorations) {
+        return Style.style(color, decorations.toArray(new TextDecoration[0]));
+    }
+
+    private static TextColor parseHex(String value) {
+        for (int i = 1; i < value.length(); i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return null;
+            }
+        }
+        return TextColor.fromHexString(value);
+    }
+
+    private static TextDecoration decoration(char code) {
+        switch (code) {
+            case 'k': return TextDecoration.OBFUSCATED;
+            case 'l': return TextDecoration.BOLD;
+            case 'm': return TextDecoration.STRIKETHROUGH;
+            case 'n': return TextDecoration.UNDERLINED;
+            case 'o': return TextDecoration.ITALIC;
+            default: return null;
+        }
+    }
+
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
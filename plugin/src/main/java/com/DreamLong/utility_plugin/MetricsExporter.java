@@ -0,0 +1,112 @@
+package com.DreamLong.utility_plugin;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Publishes a MetricsRegistry in the Prometheus text format, either by rewriting a file at a fixed
+// interval (for node_exporter's textfile collector) or from an HTTP endpoint on the loopback address.
+// Both run on their own daemon thread so scrapes never touch the server thread.
+final class MetricsExporter {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry registry;
+    private final Logger logger;
+    private ScheduledExecutorService fileWriter;
+    private HttpServer httpServer;
+    private ExecutorService httpExecutor;
+
+    MetricsExporter(MetricsRegistry registry, Logger logger) {
+        this.registry = registry;
+        this.logger = logger;
+    }
+
+    // Rewrites the file every intervalSeconds; readers never see a partly written file
+    void startFile(File file, long intervalSeconds) {
+        fileWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "UtilityPlugin-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1L, intervalSeconds);
+        fileWriter.scheduleWithFixedDelay(() -> writeFile(file), 0L, interval, TimeUnit.SECONDS);
+        logger.info("Writing metrics to " + file.getName() + " every " + interval + " s.");
+    }
+
+    // Serves GET /metrics on 127.0.0.1 only
+    void startHttp(int port) throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext("/metrics", this::handle);
+        httpExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "UtilityPlugin-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer.setExecutor(httpExecutor);
+        httpServer.start();
+        logger.info("Serving metrics on http://127.0.0.1:" + port + "/metrics");
+    }
+
+    void close() {
+        if (fileWriter != null) {
+            fileWriter.shutdownNow();
+        }
+        if (httpServer != null) {
+            httpServer.stop(0);
+        }
+        // The server does not stop an executor it was given; a live thread would pin the old plugin on reload
+        if (httpExecutor != null) {
+            httpExecutor.shutdownNow();
+        }
+    }
+
+    private void writeFile(File file) {
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            File temp = File.createTempFile(file.getName(), ".tmp", parent);
+            try {
+                Files.write(temp.toPath(), registry.toPrometheus().getBytes(StandardCharsets.UTF_8));
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Could not write metrics to " + file, e);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = registry.toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.DreamLong.utility_plugin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Counters, gauges and latency histograms, written from any thread without locking and exported in the
+// Prometheus text format. Metrics are identified by name plus an optional single label.
+final class MetricsRegistry {
+
+    enum Type {
+        COUNTER,
+        GAUGE,
+        HISTOGRAM
+    }
+
+    abstract static class Metric {
+        final String name;
+        final String help;
+        final String labelName;
+        final String labelValue;
+
+        Metric(String name, String help, String labelName, String labelValue) {
+            this.name = name;
+            this.help = help;
+            this.labelName = labelName;
+            this.labelValue = labelValue;
+        }
+
+        abstract Type type();
+
+        // Name with its label, as shown by /utility stats
+        String displayName() {
+            return labelName == null ? name : name + "{" + labelName + "=" + labelValue + "}";
+        }
+    }
+
+    static final class Counter extends Metric {
+        private final LongAdder value = new LongAdder();
+        // Running total kept by another component, read instead of 'value' when set
+        private final LongSupplier source;
+
+        Counter(String name, String help, String labelName, String labelValue, LongSupplier source) {
+            super(name, help, labelName, labelValue);
+            this.source = source;
+        }
+
+        @Override
+        Type type() {
+            return Type.COUNTER;
+        }
+
+        void increment() {
+            value.increment();
+        }
+
+        void add(long amount) {
+            value.add(amount);
+        }
+
+        long get() {
+            return source != null ? source.getAsLong() : value.sum();
+        }
+    }
+
+    static final class Gauge extends Metric {
+        private final LongSupplier supplier;
+
+        Gauge(String name, String help, String labelName, String labelValue, LongSupplier supplier) {
+            super(name, help, labelName, labelValue);
+            this.supplier = supplier;
+        }
+
+        @Override
+        Type type() {
+            return Type.GAUGE;
+        }
+
+        long get() {
+            return supplier.getAsLong();
+        }
+    }
+
+    // Power-of-two buckets from about 1 microsecond (2^10 ns) to about 69 s (2^36 ns)
+    static final class Histogram extends Metric {
+        static final int MIN_EXPONENT = 10;
+        static final int BUCKETS = 27;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+
+        Histogram(String name, String help, String labelName, String labelValue) {
+            super(name, help, labelName, labelValue);
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        @Override
+        Type type() {
+            return Type.HISTOGRAM;
+        }
+
+        void record(long nanos) {
+            long value = Math.max(1L, nanos);
+            int exponent = 64 - Long.numberOfLeadingZeros(value - 1);
+            int index = Math.min(BUCKETS, Math.max(0, exponent - MIN_EXPONENT));
+            buckets[index].increment();
+            count.increment();
+            sumNanos.add(value);
+        }
+
+        // Records the time elapsed since a System.nanoTime() reading
+        void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        long getSumNanos() {
+            return sumNanos.sum();
+        }
+
+        // Upper bound of bucket i in nanoseconds; the last bucket is unbounded
+        static long upperBoundNanos(int index) {
+            return 1L << (MIN_EXPONENT + index);
+        }
+
+        long[] snapshot() {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+
+        // Estimated quantile in nanoseconds: the upper bound of the bucket that contains it
+        long quantileNanos(double quantile) {
+            long[] counts = snapshot();
+            long total = 0L;
+            for (long c : counts) {
+                total += c;
+            }
+            if (total == 0L) {
+                return 0L;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < BUCKETS ? upperBoundNanos(i) : Long.MAX_VALUE;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private final Map<String, Metric> byKey = new ConcurrentHashMap<>();
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    Counter counter(String name, String help) {
+        return counter(name, help, null, null);
+    }
+
+    Counter counter(String name, String help, String labelName, String labelValue) {
+        return (Counter) register(new Counter(name, help, labelName, labelValue, null));
+    }
+
+    // Exports a total that only grows, kept elsewhere, as a counter
+    void counter(String name, String help, String labelName, String labelValue, LongSupplier source) {
+        register(new Counter(name, help, labelName, labelValue, source));
+    }
+
+    void gauge(String name, String help, LongSupplier supplier) {
+        register(new Gauge(name, help, null, null, supplier));
+    }
+
+    void gauge(String name, String help, String labelName, String labelValue, LongSupplier supplier) {
+        register(new Gauge(name, help, labelName, labelValue, supplier));
+    }
+
+    Histogram histogram(String name, String help) {
+        return histogram(name, help, null, null);
+    }
+
+    Histogram histogram(String name, String help, String labelName, String labelValue) {
+        return (Histogram) register(new Histogram(name, help, labelName, labelValue));
+    }
+
+    // Returns the already registered metric of the same name and label, if any
+    private synchronized Metric register(Metric metric) {
+        String key = metric.displayName();
+        Metric existing = byKey.get(key);
+        if (existing != null) {
+            if (existing.type() != metric.type()) {
+                throw new IllegalArgumentException(key + " is already registered as a " + existing.type());
+            }
+            return existing;
+        }
+        byKey.put(key, metric);
+        metrics.add(metric);
+        return metric;
+    }
+
+    List<Metric> getMetrics() {
+        return metrics;
+    }
+
+    // Prometheus text exposition format, version 0.0.4
+    String toPrometheus() {
+        Map<String, List<Metric>> families = new LinkedHashMap<>();
+        for (Metric metric : metrics) {
+            families.computeIfAbsent(metric.name, name -> new ArrayList<>()).add(metric);
+        }
+
+        StringBuilder out = new StringBuilder(4096);
+        for (List<Metric> family : families.values()) {
+            Metric first = family.get(0);
+            out.append("# HELP ").append(first.name).append(' ').append(first.help).append('\n');
+            out.append("# TYPE ").append(first.name).append(' ').append(first.type().name().toLowerCase(Locale.ROOT)).append('\n');
+            for (Metric metric : family) {
+                if (metric instanceof Counter) {
+                    sample(out, metric.name, metric, null, Long.toString(((Counter) metric).get()));
+                } else if (metric instanceof Gauge) {
+                    sample(out, metric.name, metric, null, Long.toString(((Gauge) metric).get()));
+                } else {
+                    Histogram histogram = (Histogram) metric;
+                    long[] counts = histogram.snapshot();
+                    long cumulative = 0L;
+                    for (int i = 0; i < counts.length; i++) {
+                        cumulative += counts[i];
+                        String le = i < Histogram.BUCKETS ? seconds(Histogram.upperBoundNanos(i)) : "+Inf";
+                        sample(out, metric.name + "_bucket", metric, le, Long.toString(cumulative));
+                    }
+                    sample(out, metric.name + "_sum", metric, null, seconds(histogram.getSumNanos()));
+                    sample(out, metric.name + "_count", metric, null, Long.toString(cumulative));
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, Metric metric, String le, String value) {
+        out.append(name);
+        if (metric.labelName != null || le != null) {
+            out.append('{');
+            if (metric.labelName != null) {
+                out.append(metric.labelName).append("=\"").append(escape(metric.labelValue)).append('"');
+                if (le != null) {
+                    out.append(',');
+                }
+            }
+            if (le != null) {
+                out.append("le=\"").append(le).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1_000_000_000.0);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
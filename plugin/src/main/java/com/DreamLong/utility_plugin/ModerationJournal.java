@@ -0,0 +1,436 @@
+package com.DreamLong.utility_plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+// Append-only log of moderation actions, split into numbered segment files.
+//
+// Records are [length][crc32][payload] and are only ever appended. Once the active segment reaches its
+// size limit it is forced to disk, sealed, and gets a sidecar .idx file listing (target, offset) for each
+// record, so startup reads the index files and only scans the active segment. Lookups go through an
+// in-memory list of record positions per target and read just those records with positional reads.
+final class ModerationJournal {
+
+    // Stored as ordinals; only add new actions at the end
+    enum Action {
+        BAN,
+        TEMPBAN,
+        UNBAN,
+        KICK,
+        MUTE,
+        UNMUTE,
+        WARN,
+        UNWARN
+    }
+
+    static final class Entry {
+        final long timestamp;
+        final UUID target;
+        final Action action;
+        // Minutes for temporary actions, -1 for permanent ones, 0 when not applicable
+        final long durationMinutes;
+        final String actor;
+        final String reason;
+
+        Entry(long timestamp, UUID target, Action action, long durationMinutes, String actor, String reason) {
+            this.timestamp = timestamp;
+            this.target = target;
+            this.action = action;
+            this.durationMinutes = durationMinutes;
+            this.actor = actor;
+            this.reason = reason;
+        }
+    }
+
+    private static final int MAGIC = 0x55544D4A; // "UTMJ"
+    private static final int INDEX_MAGIC = 0x55544D49; // "UTMI"
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES + Integer.BYTES;
+    private static final int MAX_ACTOR_CHARS = 64;
+    private static final int MAX_REASON_CHARS = 256;
+    private static final int MAX_PAYLOAD = 64 * 1024;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{6})\\.log");
+
+    // Growable list of packed (segment, offset) positions for one target, oldest first
+    private static final class Positions {
+        long[] values = new long[4];
+        int size;
+
+        void add(long position) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = position;
+        }
+    }
+
+    private final File folder;
+    private final long segmentSize;
+    private final Logger logger;
+    private final Map<UUID, Positions> index = new HashMap<>();
+    private final Map<Integer, FileChannel> readers = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+    private FileChannel active;
+    private int activeSegment;
+    private long activeSize;
+
+    ModerationJournal(File folder, long segmentSize, Logger logger) throws IOException {
+        this.folder = folder;
+        this.segmentSize = Math.max(64 * 1024, segmentSize);
+        this.logger = logger;
+        open();
+    }
+
+    // Appends one action. The record reaches the OS immediately and the disk when its segment is sealed or closed.
+    synchronized void append(Entry entry) throws IOException {
+        ByteBuffer record = encode(entry);
+        if (activeSize > SEGMENT_HEADER_SIZE && activeSize + record.remaining() > segmentSize) {
+            rotate();
+        }
+        long offset = activeSize;
+        while (record.hasRemaining()) {
+            activeSize += active.write(record, activeSize);
+        }
+        index.computeIfAbsent(entry.target, key -> new Positions()).add(pack(activeSegment, offset));
+    }
+
+    // Number of recorded actions against a target
+    synchronized int count(UUID target) {
+        Positions positions = index.get(target);
+        return positions == null ? 0 : positions.size;
+    }
+
+    // Reads up to 'limit' actions against a target, newest first, skipping the 'skip' most recent ones
+    List<Entry> read(UUID target, int skip, int limit) throws IOException {
+        long[] wanted;
+        synchronized (this) {
+            Positions positions = index.get(target);
+            if (positions == null || skip >= positions.size) {
+                return new ArrayList<>();
+            }
+            int from = positions.size - 1 - skip;
+            int count = Math.min(limit, from + 1);
+            wanted = new long[count];
+            for (int i = 0; i < count; i++) {
+                wanted[i] = positions.values[from - i];
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>(wanted.length);
+        for (long position : wanted) {
+            entries.add(readRecord(reader(segmentOf(position)), offsetOf(position)));
+        }
+        return entries;
+    }
+
+    synchronized void close() throws IOException {
+        for (FileChannel reader : readers.values()) {
+            reader.close();
+        }
+        readers.clear();
+        if (active != null) {
+            active.force(false);
+            active.close();
+            active = null;
+        }
+    }
+
+    // Loads sealed segments from their index files and rebuilds the index of the active one
+    private void open() throws IOException {
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            throw new IOException("Could not create " + folder);
+        }
+        TreeMap<Integer, File> segments = new TreeMap<>();
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getName());
+                if (matcher.matches()) {
+                    segments.put(Integer.parseInt(matcher.group(1)), file);
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        int records = 0;
+        for (Map.Entry<Integer, File> segment : segments.entrySet()) {
+            int id = segment.getKey();
+            if (id == segments.lastKey()) {
+                break;
+            }
+            if (!loadIndexFile(id)) {
+                logger.warning("Rebuilding the journal index of " + segment.getValue().getName() + ".");
+                scan(id, segment.getValue());
+                writeIndexFile(id);
+            }
+        }
+
+        if (segments.isEmpty()) {
+            startSegment(1);
+        } else {
+            activeSegment = segments.lastKey();
+            File file = segments.lastEntry().getValue();
+            long validSize = scan(activeSegment, file);
+            active = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (active.size() > validSize) {
+                logger.warning("Dropping " + (active.size() - validSize) + " bytes of incomplete journal records from " + file.getName() + ".");
+                active.truncate(validSize);
+            }
+            activeSize = validSize;
+        }
+        for (Positions positions : index.values()) {
+            records += positions.size;
+        }
+        logger.info("Opened the moderation journal: " + records + " actions in " + Math.max(1, segments.size()) + " segments ("
+                + (System.nanoTime() - start) / 1_000_000L + " ms).");
+    }
+
+    // Seals the active segment and starts the next one. The sealed channel stays open for lookups.
+    private void rotate() throws IOException {
+        active.force(false);
+        readers.put(activeSegment, active);
+        writeIndexFile(activeSegment);
+        startSegment(activeSegment + 1);
+    }
+
+    private void startSegment(int id) throws IOException {
+        File file = segmentFile(id);
+        active = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        active.write(header, 0);
+        activeSegment = id;
+        activeSize = SEGMENT_HEADER_SIZE;
+    }
+
+    // Reads a segment and indexes its records; returns the length of the valid prefix, which ends at the
+    // first torn or corrupt record. The segment is read into the heap rather than mapped, since a live
+    // mapping prevents truncating the file on some platforms.
+    private long scan(int id, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < SEGMENT_HEADER_SIZE) {
+                return writeHeaderIfEmpty(file);
+            }
+            ByteBuffer contents = ByteBuffer.allocate((int) size);
+            readFully(channel, contents, 0);
+            if (contents.getInt(0) != MAGIC) {
+                throw new IOException(file.getName() + " is not a moderation journal segment");
+            }
+            int position = SEGMENT_HEADER_SIZE;
+            while (position + RECORD_HEADER_SIZE <= size) {
+                int length = contents.getInt(position);
+                int checksum = contents.getInt(position + 4);
+                if (length <= 0 || length > MAX_PAYLOAD || position + RECORD_HEADER_SIZE + length > size) {
+                    break;
+                }
+                ByteBuffer payload = contents.duplicate();
+                payload.position(position + RECORD_HEADER_SIZE).limit(position + RECORD_HEADER_SIZE + length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                UUID target = new UUID(payload.getLong(payload.position() + 8), payload.getLong(payload.position() + 16));
+                index.computeIfAbsent(target, key -> new Positions()).add(pack(id, position));
+                position += RECORD_HEADER_SIZE + length;
+            }
+            return position;
+        }
+    }
+
+    // A segment created just before a crash may be missing its header
+    private long writeHeaderIfEmpty(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header, 0);
+        }
+        return SEGMENT_HEADER_SIZE;
+    }
+
+    // Writes (target, offset) for every record of a sealed segment, taken from the in-memory index
+    private void writeIndexFile(int id) throws IOException {
+        List<long[]> entries = new ArrayList<>();
+        for (Map.Entry<UUID, Positions> entry : index.entrySet()) {
+            Positions positions = entry.getValue();
+            for (int i = 0; i < positions.size; i++) {
+                if (segmentOf(positions.values[i]) == id) {
+                    entries.add(new long[] {entry.getKey().getMostSignificantBits(), entry.getKey().getLeastSignificantBits(),
+                            offsetOf(positions.values[i])});
+                }
+            }
+        }
+        entries.sort((a, b) -> Long.compare(a[2], b[2]));
+
+        ByteBuffer buffer = ByteBuffer.allocate(8 + entries.size() * INDEX_ENTRY_SIZE + 4);
+        buffer.putInt(INDEX_MAGIC).putInt(entries.size());
+        for (long[] entry : entries) {
+            buffer.putLong(entry[0]).putLong(entry[1]).putInt((int) entry[2]);
+        }
+        crc.reset();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        File file = indexFile(id);
+        File temp = new File(file.getPath() + ".tmp");
+        Files.write(temp.toPath(), buffer.array());
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private boolean loadIndexFile(int id) {
+        File file = indexFile(id);
+        if (!file.isFile()) {
+            return false;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (buffer.remaining() < 12 || buffer.getInt(0) != INDEX_MAGIC) {
+                return false;
+            }
+            int count = buffer.getInt(4);
+            if (count < 0 || buffer.remaining() != 8 + (long) count * INDEX_ENTRY_SIZE + 4) {
+                return false;
+            }
+            crc.reset();
+            crc.update(buffer.array(), 0, buffer.remaining() - 4);
+            if ((int) crc.getValue() != buffer.getInt(buffer.remaining() - 4)) {
+                return false;
+            }
+            buffer.position(8);
+            for (int i = 0; i < count; i++) {
+                UUID target = new UUID(buffer.getLong(), buffer.getLong());
+                index.computeIfAbsent(target, key -> new Positions()).add(pack(id, buffer.getInt()));
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private synchronized FileChannel reader(int id) throws IOException {
+        if (id == activeSegment && active != null) {
+            return active;
+        }
+        FileChannel reader = readers.get(id);
+        if (reader == null) {
+            reader = FileChannel.open(segmentFile(id).toPath(), StandardOpenOption.READ);
+            readers.put(id, reader);
+        }
+        return reader;
+    }
+
+    private static Entry readRecord(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(channel, header, offset);
+        int length = header.getInt(0);
+        if (length <= 0 || length > MAX_PAYLOAD) {
+            throw new IOException("Corrupt journal record at offset " + offset);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, offset + RECORD_HEADER_SIZE);
+        CRC32 checksum = new CRC32();
+        checksum.update(payload.array());
+        if ((int) checksum.getValue() != header.getInt(4)) {
+            throw new IOException("Journal record at offset " + offset + " failed its checksum");
+        }
+        return decode(payload);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of journal segment");
+            }
+        }
+        buffer.flip();
+    }
+
+    private ByteBuffer encode(Entry entry) {
+        byte[] actor = truncate(entry.actor, MAX_ACTOR_CHARS).getBytes(StandardCharsets.UTF_8);
+        byte[] reason = truncate(entry.reason, MAX_REASON_CHARS).getBytes(StandardCharsets.UTF_8);
+        int length = 8 + 16 + 1 + 8 + 2 + actor.length + 2 + reason.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+        record.putInt(length).putInt(0);
+        record.putLong(entry.timestamp)
+                .putLong(entry.target.getMostSignificantBits())
+                .putLong(entry.target.getLeastSignificantBits())
+                .put((byte) entry.action.ordinal())
+                .putLong(entry.durationMinutes)
+                .putShort((short) actor.length).put(actor)
+                .putShort((short) reason.length).put(reason);
+        crc.reset();
+        crc.update(record.array(), RECORD_HEADER_SIZE, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    private static Entry decode(ByteBuffer payload) throws IOException {
+        long timestamp = payload.getLong();
+        UUID target = new UUID(payload.getLong(), payload.getLong());
+        int action = payload.get();
+        if (action < 0 || action >= Action.values().length) {
+            throw new IOException("Unknown journal action " + action);
+        }
+        long duration = payload.getLong();
+        String actor = readString(payload);
+        String reason = readString(payload);
+        return new Entry(timestamp, target, Action.values()[action], duration, actor, reason);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String truncate(String value, int maxChars) {
+        if (value == null) {
+            return "";
+        }
+        return value.length() <= maxChars ? value : value.substring(0, maxChars);
+    }
+
+    private File segmentFile(int id) {
+        return new File(folder, String.format("segment-%06d.log", id));
+    }
+
+    private File indexFile(int id) {
+        return new File(folder, String.format("segment-%06d.idx", id));
+    }
+
+    private static long pack(int segment, long offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    private static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static long offsetOf(long position) {
+        return position & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,111 @@
+package com.DreamLong.utility_plugin;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Case-insensitive name -> UUID lookup for every known account, including names used in the past.
+// Reads are lock-free; updates are serialized so the current and past name maps stay consistent.
+final class NameIndex {
+
+    // Names kept per account, oldest first
+    private static final int MAX_HISTORY = 16;
+
+    private final Map<String, UUID> currentNames = new ConcurrentHashMap<>();
+    private final Map<String, UUID> pastNames = new ConcurrentHashMap<>();
+    private final Map<UUID, List<String>> history = new ConcurrentHashMap<>();
+
+    // Records the name an account currently uses
+    synchronized void record(UUID playerUUID, String name) {
+        if (name == null || name.isEmpty()) {
+            return;
+        }
+        String key = name.toLowerCase(Locale.ROOT);
+        List<String> names = history.get(playerUUID);
+        if (names != null && names.get(names.size() - 1).equals(name) && playerUUID.equals(currentNames.get(key))) {
+            return;
+        }
+
+        // The account's previous name becomes a past name
+        if (names != null) {
+            String previousKey = names.get(names.size() - 1).toLowerCase(Locale.ROOT);
+            if (!previousKey.equals(key) && currentNames.remove(previousKey, playerUUID)) {
+                pastNames.put(previousKey, playerUUID);
+            }
+        }
+
+        // Names are unique among current players, so another account holding it has since renamed
+        UUID previousOwner = currentNames.put(key, playerUUID);
+        if (previousOwner != null && !previousOwner.equals(playerUUID)) {
+            pastNames.put(key, previousOwner);
+        }
+
+        List<String> updated = names == null ? new ArrayList<>() : new ArrayList<>(names);
+        updated.remove(name);
+        updated.add(name);
+        while (updated.size() > MAX_HISTORY) {
+            updated.remove(0);
+        }
+        history.put(playerUUID, Collections.unmodifiableList(updated));
+    }
+
+    // Finds the account currently using a name, falling back to the last account that used it
+    UUID lookup(String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        UUID playerUUID = currentNames.get(key);
+        return playerUUID != null ? playerUUID : pastNames.get(key);
+    }
+
+    // Returns the last known name of an account, or null if it is unknown
+    String getName(UUID playerUUID) {
+        List<String> names = history.get(playerUUID);
+        return names == null ? null : names.get(names.size() - 1);
+    }
+
+    // Returns every known name of an account, oldest first
+    List<String> getHistory(UUID playerUUID) {
+        List<String> names = history.get(playerUUID);
+        return names == null ? Collections.emptyList() : names;
+    }
+
+    int size() {
+        return history.size();
+    }
+
+    // Loads saved name histories; current names are added afterwards from the player store
+    void load(File file) {
+        if (!file.exists()) {
+            return;
+        }
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        for (String key : config.getKeys(false)) {
+            UUID playerUUID;
+            try {
+                playerUUID = UUID.fromString(key);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            for (String name : config.getStringList(key)) {
+                record(playerUUID, name);
+            }
+        }
+    }
+
+    // Saves the histories of accounts that have used more than one name
+    void save(File file) throws IOException {
+        YamlConfiguration config = new YamlConfiguration();
+        for (Map.Entry<UUID, List<String>> entry : history.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                config.set(entry.getKey().toString(), entry.getValue());
+            }
+        }
+        config.save(file);
+    }
+}
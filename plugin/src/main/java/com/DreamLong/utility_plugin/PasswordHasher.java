@@ -0,0 +1,98 @@
+package com.DreamLong.utility_plugin;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.KeySpec;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// Salted PBKDF2 password hashing. Hashes are stored as "pbkdf2$<iterations>$<salt>$<hash>".
+// Plain Base64 SHA-256 hashes written by older versions are still accepted and flagged for rehashing.
+final class PasswordHasher {
+
+    private static final String PREFIX = "pbkdf2";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+
+    // Outcome of checking a password against a stored hash
+    static final class Result {
+        static final Result MISMATCH = new Result(false, false);
+
+        final boolean matches;
+        final boolean needsRehash;
+
+        private Result(boolean matches, boolean needsRehash) {
+            this.matches = matches;
+            this.needsRehash = needsRehash;
+        }
+    }
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    PasswordHasher(int iterations) {
+        this.iterations = Math.max(1, iterations);
+    }
+
+    // Creates a new salted hash with the configured cost
+    String hash(String password) throws GeneralSecurityException {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] key = derive(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(key);
+    }
+
+    // Checks a password in constant time with respect to the stored hash
+    Result verify(String password, String storedHash) throws GeneralSecurityException {
+        if (storedHash == null) {
+            return Result.MISMATCH;
+        }
+        if (!storedHash.startsWith(PREFIX + "$")) {
+            return verifyLegacy(password, storedHash);
+        }
+
+        String[] parts = storedHash.split("\\$");
+        if (parts.length != 4) {
+            return Result.MISMATCH;
+        }
+        int storedIterations;
+        byte[] salt;
+        byte[] expected;
+        try {
+            storedIterations = Integer.parseInt(parts[1]);
+            salt = Base64.getDecoder().decode(parts[2]);
+            expected = Base64.getDecoder().decode(parts[3]);
+        } catch (IllegalArgumentException e) {
+            return Result.MISMATCH;
+        }
+
+        byte[] actual = derive(password, salt, storedIterations);
+        if (!MessageDigest.isEqual(actual, expected)) {
+            return Result.MISMATCH;
+        }
+        return new Result(true, storedIterations != iterations);
+    }
+
+    // Unsalted SHA-256 hashes from earlier versions. They were computed over the platform
+    // default encoding, so the same encoding is used here to keep existing accounts working.
+    private Result verifyLegacy(String password, String storedHash) throws NoSuchAlgorithmException {
+        byte[] expected;
+        try {
+            expected = Base64.getDecoder().decode(storedHash);
+        } catch (IllegalArgumentException e) {
+            return Result.MISMATCH;
+        }
+        byte[] actual = MessageDigest.getInstance("SHA-256").digest(password.getBytes());
+        return MessageDigest.isEqual(actual, expected) ? new Result(true, true) : Result.MISMATCH;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) throws GeneralSecurityException {
+        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_BITS);
+        return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+    }
+}
@@ -0,0 +1,76 @@
+package com.DreamLong.utility_plugin;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+// Player Data Class to store all relevant information
+final class PlayerData {
+    // Longest username and password hash, in UTF-8 bytes, that every storage engine can hold
+    static final int MAX_USERNAME_BYTES = 32;
+    static final int MAX_PASSWORD_HASH_BYTES = 128;
+
+    private String username;
+    private String passwordHash;
+    private long warns;
+    private long startWarns;
+    private long mutes;
+    private long startMutes;
+    private long bans;
+    private long startBans;
+    private long loginAttempts;
+    private boolean dirty;
+
+    public PlayerData(String username, String passwordHash, long warns, long startWarns, long mutes, long startMutes, long bans, long startBans, long loginAttempts) {
+        this.username = username;
+        this.passwordHash = passwordHash;
+        this.warns = warns;
+        this.startWarns = startWarns;
+        this.mutes = mutes;
+        this.startMutes = startMutes;
+        this.bans = bans;
+        this.startBans = startBans;
+        this.loginAttempts = loginAttempts;
+    }
+
+    // Getters and setters for all data fields
+    public String getUsername() { return username; }
+    public String getPasswordHash() { return passwordHash; }
+    public long getWarns() { return warns; }
+    public long getStartWarns() { return startWarns; }
+    public long getMutes() { return mutes; }
+    public long getStartMutes() { return startMutes; }
+    public long getBans() { return bans; }
+    public long getStartBans() { return startBans; }
+    public long getLoginAttempts() { return loginAttempts; }
+
+    public void setUsername(String username) { if (!Objects.equals(this.username, username)) { this.username = username; dirty = true; } }
+    public void setPasswordHash(String passwordHash) { if (!Objects.equals(this.passwordHash, passwordHash)) { this.passwordHash = passwordHash; dirty = true; } }
+    public void setWarns(long warns) { if (this.warns != warns) { this.warns = warns; dirty = true; } }
+    public void setStartWarns(long startWarns) { if (this.startWarns != startWarns) { this.startWarns = startWarns; dirty = true; } }
+    public void setMutes(long mutes) { if (this.mutes != mutes) { this.mutes = mutes; dirty = true; } }
+    public void setStartMutes(long startMutes) { if (this.startMutes != startMutes) { this.startMutes = startMutes; dirty = true; } }
+    public void setBans(long bans) { if (this.bans != bans) { this.bans = bans; dirty = true; } }
+    public void setStartBans(long startBans) { if (this.startBans != startBans) { this.startBans = startBans; dirty = true; } }
+    public void setLoginAttempts(long loginAttempts) { if (this.loginAttempts != loginAttempts) { this.loginAttempts = loginAttempts; dirty = true; } }
+
+    // True when a field changed since the record was last queued for saving; records start out clean
+    public boolean isDirty() { return dirty; }
+    public void markDirty() { dirty = true; }
+    public void clearDirty() { dirty = false; }
+
+    // Explains why a username or password hash from outside the plugin cannot be stored, or returns null
+    static String checkStorable(String username, String passwordHash) {
+        if (username != null && username.getBytes(StandardCharsets.UTF_8).length > MAX_USERNAME_BYTES) {
+            return "username is longer than " + MAX_USERNAME_BYTES + " bytes";
+        }
+        if (passwordHash != null && passwordHash.getBytes(StandardCharsets.UTF_8).length > MAX_PASSWORD_HASH_BYTES) {
+            return "password hash is longer than " + MAX_PASSWORD_HASH_BYTES + " bytes";
+        }
+        return null;
+    }
+
+    // Creates a detached copy of the persisted fields for the persistence thread
+    public PlayerData copy() {
+        return new PlayerData(username, passwordHash, warns, startWarns, mutes, startMutes, bans, startBans, loginAttempts);
+    }
+}
@@ -0,0 +1,56 @@
+package com.DreamLong.utility_plugin;
+
+// State of an online player that async threads need to read, such as the chat handler.
+// Writers are serialized and publish a single volatile gate value, so a reader needs one volatile read:
+// LOCKED while the player has not logged in, otherwise the mute deadline (0 = not muted).
+final class PlayerSession {
+
+    // Gate value while the player has not logged in
+    static final long LOCKED = -1L;
+
+    private boolean loggedIn;
+    private long muteUntil;
+    private volatile long chatGate = LOCKED;
+    // Recent chat of the player for the spam detector, or null when it is off
+    private final SpamDetector.History chatHistory;
+
+    PlayerSession(long muteUntil, SpamDetector.History chatHistory) {
+        this.muteUntil = muteUntil;
+        this.chatHistory = chatHistory;
+    }
+
+    // Decides whether a chat line may be sent: null if it may, otherwise the message explaining why not.
+    // A missing session counts as not logged in.
+    static Message checkChat(PlayerSession session) {
+        long gate = session == null ? LOCKED : session.chatGate;
+        if (gate == 0L) {
+            return null;
+        }
+        if (gate == LOCKED) {
+            return Message.CHAT_NOT_LOGGED_IN;
+        }
+        return gate > System.currentTimeMillis() ? Message.CHAT_MUTED : null;
+    }
+
+    SpamDetector.History getChatHistory() {
+        return chatHistory;
+    }
+
+    boolean isLoggedIn() {
+        return chatGate != LOCKED;
+    }
+
+    synchronized void setLoggedIn(boolean loggedIn) {
+        this.loggedIn = loggedIn;
+        publish();
+    }
+
+    synchronized void setMuteUntil(long muteUntil) {
+        this.muteUntil = muteUntil;
+        publish();
+    }
+
+    private void publish() {
+        chatGate = loggedIn ? Math.max(0L, muteUntil) : LOCKED;
+    }
+}
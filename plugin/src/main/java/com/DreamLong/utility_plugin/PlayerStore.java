@@ -0,0 +1,72 @@
+package com.DreamLong.utility_plugin;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+// Storage backend for player records. Selected with storage.engine in config.yml.
+// Writes only ever come from the persistence thread; loads may come from any thread.
+interface PlayerStore extends Closeable {
+
+    // Short name used in log messages
+    String getName();
+
+    // Number of stored accounts
+    int size() throws IOException;
+
+    // Reads one record, or returns null if the account is not stored
+    PlayerData load(UUID playerUUID) throws IOException;
+
+    // Writes a batch of records
+    void saveAll(Map<UUID, PlayerData> batch) throws IOException;
+
+    // Visits every stored record; implementations may call the consumer from several threads at once
+    void forEach(BiConsumer<UUID, PlayerData> consumer) throws IOException;
+
+    // Housekeeping run by the persistence thread after each flush
+    default void maintain() throws IOException {
+    }
+
+    // Accounts whose ban runs past the given time
+    default List<UUID> findBanned(long now) throws IOException {
+        List<UUID> banned = new ArrayList<>();
+        forEach((playerUUID, data) -> {
+            if (PunishmentIndex.banDeadline(data.getBans(), data.getStartBans()) > now) {
+                synchronized (banned) {
+                    banned.add(playerUUID);
+                }
+            }
+        });
+        return banned;
+    }
+
+    // Accounts whose mute runs past the given time
+    default List<UUID> findMuted(long now) throws IOException {
+        List<UUID> muted = new ArrayList<>();
+        forEach((playerUUID, data) -> {
+            if (PunishmentIndex.muteDeadline(data.getMutes(), data.getStartMutes()) > now) {
+                synchronized (muted) {
+                    muted.add(playerUUID);
+                }
+            }
+        });
+        return muted;
+    }
+
+    // Accounts with at least the given number of warnings
+    default List<UUID> findWarnedAtLeast(long warns) throws IOException {
+        List<UUID> warned = new ArrayList<>();
+        forEach((playerUUID, data) -> {
+            if (data.getWarns() >= warns) {
+                synchronized (warned) {
+                    warned.add(playerUUID);
+                }
+            }
+        });
+        return warned;
+    }
+}
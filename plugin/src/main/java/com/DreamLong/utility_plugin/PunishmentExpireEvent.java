@@ -0,0 +1,55 @@
+package com.DreamLong.utility_plugin;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import java.util.UUID;
+
+// Called on the main thread when a temporary ban or mute runs out, after the player's record has been cleared
+public final class PunishmentExpireEvent extends Event {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    public enum Type {
+        BAN,
+        MUTE
+    }
+
+    private final UUID playerUUID;
+    private final String playerName;
+    private final Type type;
+    private final long expiredAt;
+
+    public PunishmentExpireEvent(UUID playerUUID, String playerName, Type type, long expiredAt) {
+        this.playerUUID = playerUUID;
+        this.playerName = playerName;
+        this.type = type;
+        this.expiredAt = expiredAt;
+    }
+
+    public UUID getPlayerUUID() {
+        return playerUUID;
+    }
+
+    // Last known name of the player; may be null for accounts that never joined
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // The deadline the punishment expired at, in epoch milliseconds
+    public long getExpiredAt() {
+        return expiredAt;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,79 @@
+package com.DreamLong.utility_plugin;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Always-resident view of every active ban and mute, keyed by player UUID.
+// Entries are immutable, so async threads (pre-login, chat) can read them without locking.
+final class PunishmentIndex {
+
+    // Deadline used for permanent punishments
+    static final long PERMANENT = Long.MAX_VALUE;
+
+    static final class Entry {
+        final long banUntil;
+        final long muteUntil;
+
+        Entry(long banUntil, long muteUntil) {
+            this.banUntil = banUntil;
+            this.muteUntil = muteUntil;
+        }
+    }
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    // Converts the stored ban fields (minutes, -1 = permanent) into an absolute deadline
+    static long banDeadline(long bans, long startBans) {
+        if (bans == -1) {
+            return PERMANENT;
+        }
+        return bans > 0 ? startBans + TimeUnit.MINUTES.toMillis(bans) : 0L;
+    }
+
+    // Converts the stored mute fields (seconds, -1 = permanent) into an absolute deadline
+    static long muteDeadline(long mutes, long startMutes) {
+        if (mutes == -1) {
+            return PERMANENT;
+        }
+        return mutes > 0 ? startMutes + TimeUnit.SECONDS.toMillis(mutes) : 0L;
+    }
+
+    // Replaces both deadlines for an account; accounts without punishments are dropped from the index
+    void update(UUID playerUUID, long banUntil, long muteUntil) {
+        if (banUntil == 0L && muteUntil == 0L) {
+            entries.remove(playerUUID);
+        } else {
+            entries.put(playerUUID, new Entry(banUntil, muteUntil));
+        }
+    }
+
+    void remove(UUID playerUUID) {
+        entries.remove(playerUUID);
+    }
+
+    // Returns the ban deadline, or 0 if the account has no ban
+    long getBanUntil(UUID playerUUID) {
+        Entry entry = entries.get(playerUUID);
+        return entry == null ? 0L : entry.banUntil;
+    }
+
+    // Returns the mute deadline, or 0 if the account has no mute
+    long getMuteUntil(UUID playerUUID) {
+        Entry entry = entries.get(playerUUID);
+        return entry == null ? 0L : entry.muteUntil;
+    }
+
+    boolean isBanned(UUID playerUUID, long now) {
+        return getBanUntil(playerUUID) > now;
+    }
+
+    boolean isMuted(UUID playerUUID, long now) {
+        return getMuteUntil(playerUUID) > now;
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,569 @@
+package com.DreamLong.utility_plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Keeps bans, mutes, warnings and accounts consistent between the servers of a proxy network.
+//
+// A record is split into groups (account, ban, mute, warnings) that are versioned separately, so a server
+// that missed an update cannot undo it by saving an unrelated field. Versions are hybrid clocks
+// (wall time, bumped past every version seen) and conflicts go to the highest version, then the highest
+// server id: last writer wins. Local changes are coalesced per account and published as one batch per
+// interval, so a ban storm becomes a handful of batches rather than one message per ban.
+//
+// The versions and origins are kept in a state file across restarts. Without them, batches replayed from
+// the transport after a restart would beat the version-0 state of every loaded record and could undo
+// newer local changes.
+final class PunishmentSync {
+
+    static final int ACCOUNT = 0;
+    static final int BAN = 1;
+    static final int MUTE = 2;
+    static final int WARN = 3;
+    static final int GROUPS = 4;
+
+    private static final int MAGIC = 0x55545359; // "UTSY"
+    private static final int FORMAT = 1;
+    private static final int STATE_MAGIC = 0x55545356; // "UTSV"
+    private static final int STATE_FORMAT = 1;
+    // How often the sync thread writes changed versions to the state file
+    private static final long STATE_SAVE_INTERVAL_MILLIS = 60_000L;
+
+    // The accepted groups of one account's update, with the version of each
+    static final class Delta {
+        final UUID playerUUID;
+        final int groups;
+        final long[] versions = new long[GROUPS];
+        final String[] origins = new String[GROUPS];
+        final PlayerData values;
+
+        Delta(UUID playerUUID, int groups, PlayerData values) {
+            this.playerUUID = playerUUID;
+            this.groups = groups;
+            this.values = values;
+        }
+
+        boolean has(int group) {
+            return (groups & (1 << group)) != 0;
+        }
+
+        // Copies the groups of this delta into a local record
+        void applyTo(PlayerData data) {
+            for (int group = 0; group < GROUPS; group++) {
+                if (has(group)) {
+                    copyGroup(values, data, group);
+                }
+            }
+        }
+    }
+
+    // What this server last published or accepted for an account
+    private static final class State {
+        final long[] versions = new long[GROUPS];
+        final String[] origins = new String[GROUPS];
+        final PlayerData values = new PlayerData(null, null, 0, 0, 0, 0, 0, 0, 0);
+        int knownGroups;
+    }
+
+    private final String serverId;
+    private final SyncTransport transport;
+    private final long intervalMillis;
+    private final File stateFile;
+    private final Logger logger;
+    private final Consumer<List<Delta>> receiver;
+    private final Map<UUID, State> states = new HashMap<>();
+    private final Map<UUID, Integer> pending = new LinkedHashMap<>();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final Object signal = new Object();
+    private long clock;
+    private boolean stateDirty;
+    private long lastStateSave;
+    private Thread thread;
+    private volatile boolean running;
+
+    // 'receiver' is called on the sync thread with the groups that won against the local state
+    PunishmentSync(String serverId, SyncTransport transport, long intervalMillis, File stateFile, Logger logger,
+                   Consumer<List<Delta>> receiver) {
+        this.serverId = serverId;
+        this.transport = transport;
+        this.intervalMillis = Math.max(50L, intervalMillis);
+        this.stateFile = stateFile;
+        this.logger = logger;
+        this.receiver = receiver;
+    }
+
+    String getServerId() {
+        return serverId;
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this::run, "UtilityPlugin-Sync");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Syncing punishments as '" + serverId + "' through " + transport.getName() + ".");
+    }
+
+    // Reads the versions saved by the last run; call before start()
+    synchronized void loadState() throws IOException {
+        if (!stateFile.isFile()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile.toPath()), 1 << 16))) {
+            if (in.readInt() != STATE_MAGIC || in.readInt() != STATE_FORMAT) {
+                throw new IOException(stateFile.getName() + " is not a sync state file");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                State state = states.computeIfAbsent(new UUID(in.readLong(), in.readLong()), key -> new State());
+                int groups = in.readUnsignedByte();
+                for (int group = 0; group < GROUPS; group++) {
+                    if ((groups & (1 << group)) != 0) {
+                        state.versions[group] = in.readLong();
+                        state.origins[group] = in.readUTF();
+                        clock = Math.max(clock, state.versions[group]);
+                    }
+                }
+            }
+        }
+    }
+
+    // Writes the version and origin of every versioned group to a temporary file that replaces the old one
+    void saveState() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        synchronized (this) {
+            DataOutputStream out = new DataOutputStream(bytes);
+            List<Map.Entry<UUID, State>> versioned = new ArrayList<>();
+            for (Map.Entry<UUID, State> entry : states.entrySet()) {
+                if (versionedGroups(entry.getValue()) != 0) {
+                    versioned.add(entry);
+                }
+            }
+            out.writeInt(STATE_MAGIC);
+            out.writeInt(STATE_FORMAT);
+            out.writeInt(versioned.size());
+            for (Map.Entry<UUID, State> entry : versioned) {
+                State state = entry.getValue();
+                int groups = versionedGroups(state);
+                out.writeLong(entry.getKey().getMostSignificantBits());
+                out.writeLong(entry.getKey().getLeastSignificantBits());
+                out.writeByte(groups);
+                for (int group = 0; group < GROUPS; group++) {
+                    if ((groups & (1 << group)) != 0) {
+                        out.writeLong(state.versions[group]);
+                        out.writeUTF(state.origins[group]);
+                    }
+                }
+            }
+            out.flush();
+            stateDirty = false;
+        }
+        File temp = new File(stateFile.getPath() + ".tmp");
+        try {
+            try (BufferedOutputStream out = new BufferedOutputStream(Files.newOutputStream(temp.toPath()))) {
+                bytes.writeTo(out);
+            }
+            Files.move(temp.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp.toPath());
+            synchronized (this) {
+                stateDirty = true;
+            }
+            throw e;
+        }
+    }
+
+    // Records the stored state of an account loaded from disk, so only later changes are published
+    synchronized void observe(UUID playerUUID, PlayerData data) {
+        State state = states.computeIfAbsent(playerUUID, key -> new State());
+        for (int group = 0; group < GROUPS; group++) {
+            if ((state.knownGroups & (1 << group)) == 0) {
+                copyGroup(data, state.values, group);
+                state.knownGroups |= 1 << group;
+            }
+        }
+    }
+
+    // Queues the groups of a saved record that differ from what the network last saw
+    synchronized void publish(UUID playerUUID, PlayerData data) {
+        State state = states.computeIfAbsent(playerUUID, key -> new State());
+        int changed = 0;
+        for (int group = 0; group < GROUPS; group++) {
+            boolean known = (state.knownGroups & (1 << group)) != 0;
+            // Groups never loaded or received count as those of a new, unregistered account
+            if (known ? !sameGroup(state.values, data, group) : !isEmptyGroup(data, group)) {
+                changed |= 1 << group;
+            }
+        }
+        if (changed == 0) {
+            return;
+        }
+        long version = nextVersion();
+        for (int group = 0; group < GROUPS; group++) {
+            if ((changed & (1 << group)) != 0) {
+                copyGroup(data, state.values, group);
+                state.versions[group] = version;
+                state.origins[group] = serverId;
+                state.knownGroups |= 1 << group;
+            }
+        }
+        pending.merge(playerUUID, changed, (a, b) -> a | b);
+        stateDirty = true;
+    }
+
+    long getPublishedCount() {
+        return published.get();
+    }
+
+    long getReceivedCount() {
+        return received.get();
+    }
+
+    long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    // Stops the sync thread after publishing what is still queued
+    void close() {
+        running = false;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        if (thread != null) {
+            try {
+                thread.join(5000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            flush();
+            transport.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not publish the last sync batch.", e);
+        }
+        try {
+            saveState();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not save the sync state; changes replayed after the restart may undo newer ones.", e);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            synchronized (signal) {
+                try {
+                    signal.wait(intervalMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (!running) {
+                break;
+            }
+            try {
+                flush();
+                for (byte[] batch : transport.poll()) {
+                    List<Delta> winners;
+                    try {
+                        winners = resolve(batch);
+                    } catch (IOException e) {
+                        logger.log(Level.WARNING, "Skipping an unreadable sync batch.", e);
+                        continue;
+                    }
+                    if (!winners.isEmpty()) {
+                        receiver.accept(winners);
+                    }
+                }
+                saveStateIfDue();
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Punishment sync failed; retrying in " + intervalMillis + " ms.", e);
+            }
+        }
+    }
+
+    private void saveStateIfDue() throws IOException {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (!stateDirty || now - lastStateSave < STATE_SAVE_INTERVAL_MILLIS) {
+                return;
+            }
+            lastStateSave = now;
+        }
+        saveState();
+    }
+
+    // Publishes every queued account as one batch
+    private void flush() throws IOException {
+        byte[] batch;
+        Map<UUID, Integer> own = new LinkedHashMap<>();
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            // A group taken over by a newer remote write since it was queued is not ours to send
+            for (Map.Entry<UUID, Integer> entry : pending.entrySet()) {
+                State state = states.get(entry.getKey());
+                int groups = entry.getValue();
+                for (int group = 0; group < GROUPS; group++) {
+                    if (!serverId.equals(state.origins[group])) {
+                        groups &= ~(1 << group);
+                    }
+                }
+                if (groups != 0) {
+                    own.put(entry.getKey(), groups);
+                }
+            }
+            pending.clear();
+            if (own.isEmpty()) {
+                return;
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(own.size());
+            for (Map.Entry<UUID, Integer> entry : own.entrySet()) {
+                writeDelta(out, entry.getKey(), entry.getValue(), states.get(entry.getKey()));
+            }
+            out.flush();
+            batch = bytes.toByteArray();
+        }
+        try {
+            transport.publish(batch);
+        } catch (IOException e) {
+            // Sent again with the next batch, carrying whatever changed in the meantime
+            synchronized (this) {
+                for (Map.Entry<UUID, Integer> entry : own.entrySet()) {
+                    pending.merge(entry.getKey(), entry.getValue(), (a, b) -> a | b);
+                }
+            }
+            throw e;
+        }
+        published.addAndGet(own.size());
+    }
+
+    // Decodes a remote batch and keeps the groups that beat the local versions
+    private List<Delta> resolve(byte[] batch) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(batch));
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+            throw new IOException("Not a sync batch of a supported format");
+        }
+        int count = in.readInt();
+        // Decode the whole batch first so a corrupt batch changes nothing
+        List<Delta> remotes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            remotes.add(readDelta(in));
+        }
+        received.addAndGet(remotes.size());
+
+        List<Delta> winners = new ArrayList<>();
+        synchronized (this) {
+            for (Delta remote : remotes) {
+                State state = states.computeIfAbsent(remote.playerUUID, key -> new State());
+                int won = 0;
+                for (int group = 0; group < GROUPS; group++) {
+                    if (!remote.has(group)) {
+                        continue;
+                    }
+                    clock = Math.max(clock, remote.versions[group]);
+                    if (group == ACCOUNT) {
+                        String problem = PlayerData.checkStorable(remote.values.getUsername(), remote.values.getPasswordHash());
+                        if (problem != null) {
+                            logger.warning("Ignoring the account of " + remote.playerUUID + " from " + remote.origins[group] + ": its " + problem + ".");
+                            // The receiver also names new records after the delta, so nothing of it may remain
+                            remote.values.setUsername(null);
+                            remote.values.setPasswordHash(null);
+                            continue;
+                        }
+                    }
+                    if (newer(remote.versions[group], remote.origins[group], state.versions[group], state.origins[group])) {
+                        copyGroup(remote.values, state.values, group);
+                        state.versions[group] = remote.versions[group];
+                        state.origins[group] = remote.origins[group];
+                        state.knownGroups |= 1 << group;
+                        won |= 1 << group;
+                    }
+                }
+                if (won != 0) {
+                    Delta winner = new Delta(remote.playerUUID, won, remote.values);
+                    System.arraycopy(remote.versions, 0, winner.versions, 0, GROUPS);
+                    System.arraycopy(remote.origins, 0, winner.origins, 0, GROUPS);
+                    winners.add(winner);
+                    accepted.incrementAndGet();
+                    stateDirty = true;
+                }
+            }
+        }
+        return winners;
+    }
+
+    private static int versionedGroups(State state) {
+        int groups = 0;
+        for (int group = 0; group < GROUPS; group++) {
+            if (state.origins[group] != null) {
+                groups |= 1 << group;
+            }
+        }
+        return groups;
+    }
+
+    private long nextVersion() {
+        clock = Math.max(System.currentTimeMillis(), clock + 1);
+        return clock;
+    }
+
+    private static boolean newer(long version, String origin, long localVersion, String localOrigin) {
+        if (version != localVersion) {
+            return version > localVersion;
+        }
+        return localOrigin == null || (origin != null && origin.compareTo(localOrigin) > 0);
+    }
+
+    private void writeDelta(DataOutputStream out, UUID playerUUID, int groups, State state) throws IOException {
+        out.writeLong(playerUUID.getMostSignificantBits());
+        out.writeLong(playerUUID.getLeastSignificantBits());
+        out.writeByte(groups);
+        PlayerData values = state.values;
+        for (int group = 0; group < GROUPS; group++) {
+            if ((groups & (1 << group)) == 0) {
+                continue;
+            }
+            out.writeLong(state.versions[group]);
+            out.writeUTF(state.origins[group]);
+            switch (group) {
+                case ACCOUNT:
+                    writeNullable(out, values.getUsername());
+                    writeNullable(out, values.getPasswordHash());
+                    break;
+                case BAN:
+                    out.writeLong(values.getBans());
+                    out.writeLong(values.getStartBans());
+                    break;
+                case MUTE:
+                    out.writeLong(values.getMutes());
+                    out.writeLong(values.getStartMutes());
+                    break;
+                default:
+                    out.writeLong(values.getWarns());
+                    out.writeLong(values.getStartWarns());
+            }
+        }
+    }
+
+    private static Delta readDelta(DataInputStream in) throws IOException {
+        UUID playerUUID = new UUID(in.readLong(), in.readLong());
+        int groups = in.readUnsignedByte();
+        Delta delta = new Delta(playerUUID, groups & ((1 << GROUPS) - 1), new PlayerData(null, null, 0, 0, 0, 0, 0, 0, 0));
+        PlayerData values = delta.values;
+        for (int group = 0; group < GROUPS; group++) {
+            if ((groups & (1 << group)) == 0) {
+                continue;
+            }
+            delta.versions[group] = in.readLong();
+            delta.origins[group] = in.readUTF();
+            switch (group) {
+                case ACCOUNT:
+                    values.setUsername(readNullable(in));
+                    values.setPasswordHash(readNullable(in));
+                    break;
+                case BAN:
+                    values.setBans(in.readLong());
+                    values.setStartBans(in.readLong());
+                    break;
+                case MUTE:
+                    values.setMutes(in.readLong());
+                    values.setStartMutes(in.readLong());
+                    break;
+                default:
+                    values.setWarns(in.readLong());
+                    values.setStartWarns(in.readLong());
+            }
+        }
+        return delta;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static boolean sameGroup(PlayerData a, PlayerData b, int group) {
+        switch (group) {
+            case ACCOUNT:
+                return Objects.equals(a.getUsername(), b.getUsername()) && Objects.equals(a.getPasswordHash(), b.getPasswordHash());
+            case BAN:
+                return a.getBans() == b.getBans() && a.getStartBans() == b.getStartBans();
+            case MUTE:
+                return a.getMutes() == b.getMutes() && a.getStartMutes() == b.getStartMutes();
+            default:
+                return a.getWarns() == b.getWarns() && a.getStartWarns() == b.getStartWarns();
+        }
+    }
+
+    private static boolean isEmptyGroup(PlayerData data, int group) {
+        switch (group) {
+            case ACCOUNT:
+                return data.getPasswordHash() == null;
+            case BAN:
+                return data.getBans() == 0;
+            case MUTE:
+                return data.getMutes() == 0;
+            default:
+                return data.getWarns() == 0;
+        }
+    }
+
+    private static void copyGroup(PlayerData from, PlayerData to, int group) {
+        switch (group) {
+            case ACCOUNT:
+                to.setUsername(from.getUsername());
+                to.setPasswordHash(from.getPasswordHash());
+                break;
+            case BAN:
+                to.setBans(from.getBans());
+                to.setStartBans(from.getStartBans());
+                break;
+            case MUTE:
+                to.setMutes(from.getMutes());
+                to.setStartMutes(from.getStartMutes());
+                break;
+            default:
+                to.setWarns(from.getWarns());
+                to.setStartWarns(from.getStartWarns());
+        }
+    }
+}
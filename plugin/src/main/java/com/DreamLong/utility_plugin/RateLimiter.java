@@ -0,0 +1,65 @@
+package com.DreamLong.utility_plugin;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free token buckets in a fixed array of stripes. Keys are hashed onto stripes, so memory stays bounded
+// no matter how many distinct addresses a flood uses; keys that share a stripe share its budget.
+//
+// Each bucket is kept in GCRA form: a single long holding the time at which the bucket will be full again.
+// That is equivalent to a token bucket refilling 'perMinute' tokens with room for 'burst', and updates
+// with one compare-and-set.
+final class RateLimiter {
+
+    private final AtomicLongArray buckets;
+    private final int mask;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final long origin = System.nanoTime();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    // stripes is rounded up to a power of two
+    RateLimiter(int stripes, int perMinute, int burst) {
+        int size = Integer.highestOneBit(Math.max(2, stripes) - 1) << 1;
+        this.buckets = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, perMinute);
+        this.toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+    }
+
+    // Takes one token for the key; returns false if its bucket is empty
+    boolean tryAcquire(Object key) {
+        int index = stripe(key);
+        long now = System.nanoTime() - origin;
+        while (true) {
+            long fullAt = buckets.get(index);
+            long start = Math.max(fullAt, now);
+            if (start - now > toleranceNanos) {
+                rejected.increment();
+                return false;
+            }
+            if (buckets.compareAndSet(index, fullAt, start + intervalNanos)) {
+                allowed.increment();
+                return true;
+            }
+        }
+    }
+
+    long getAllowed() {
+        return allowed.sum();
+    }
+
+    long getRejected() {
+        return rejected.sum();
+    }
+
+    private int stripe(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        return hash & mask;
+    }
+}
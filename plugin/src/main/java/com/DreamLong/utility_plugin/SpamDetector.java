@@ -0,0 +1,166 @@
+package com.DreamLong.utility_plugin;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Catches chat floods and repeated messages on the chat threads.
+//
+// Every online player has a History: a ring of the times and SimHash fingerprints of their last messages,
+// in atomic arrays that a message claims a slot of with one increment, so checking allocates nothing and
+// takes no lock. A message is refused when the player sent 'maxMessages' others within the rate window,
+// or when 'maxRepeats' of their messages within the repeat window have a fingerprint that differs from
+// its own in at most 'maxDifference' of 64 bits. Refused messages are recorded too, so a flood stays
+// refused until it stops.
+//
+// The fingerprint is built from the character trigrams of the folded message (lowercase, no punctuation,
+// repeated letters and spaces collapsed), so "BUY NOW!!" and "buy nooow" count as the same message and a
+// one-word change moves only a few bits.
+final class SpamDetector {
+
+    // Per-player state; created at join and dropped at quit with the player's session
+    static final class History {
+        private final AtomicLongArray times;
+        private final AtomicLongArray fingerprints;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicLong strikeWindowStart = new AtomicLong();
+        private final AtomicInteger strikes = new AtomicInteger();
+
+        private History(int size) {
+            times = new AtomicLongArray(size);
+            fingerprints = new AtomicLongArray(size);
+        }
+    }
+
+    // Per-bit votes of the trigrams of a message, reused by each chat thread
+    private static final ThreadLocal<int[]> VOTES = ThreadLocal.withInitial(() -> new int[64]);
+
+    private final int maxMessages;
+    private final long rateWindowMillis;
+    private final int maxRepeats;
+    private final long repeatWindowMillis;
+    private final int maxDifference;
+    private final int muteAfter;
+    private final long strikeWindowMillis;
+    private final int historySize;
+
+    SpamDetector(int maxMessages, long rateWindowMillis, int maxRepeats, long repeatWindowMillis, int maxDifference,
+                 int muteAfter, long strikeWindowMillis) {
+        this.maxMessages = Math.max(1, maxMessages);
+        this.rateWindowMillis = rateWindowMillis;
+        this.maxRepeats = Math.max(1, maxRepeats);
+        this.repeatWindowMillis = repeatWindowMillis;
+        this.maxDifference = Math.max(0, Math.min(64, maxDifference));
+        this.muteAfter = Math.max(1, muteAfter);
+        this.strikeWindowMillis = strikeWindowMillis;
+        this.historySize = Math.max(this.maxMessages, 2 * this.maxRepeats + 2);
+    }
+
+    History newHistory() {
+        return new History(historySize);
+    }
+
+    // Records a message and decides whether it may be sent: null if it may, otherwise the message
+    // explaining why not
+    Message check(History history, CharSequence text, long now) {
+        long fingerprint = fingerprint(text);
+        int size = historySize;
+        int sequence = history.next.getAndIncrement();
+
+        // The slot about to be overwritten holds the message sent 'historySize' messages ago; the one
+        // 'maxMessages' back decides the rate
+        long earlier = history.times.get(Math.floorMod(sequence - maxMessages, size));
+        boolean flood = earlier != 0L && now - earlier < rateWindowMillis;
+
+        int repeats = 0;
+        if (!flood) {
+            for (int i = 1; i < size && repeats < maxRepeats; i++) {
+                int slot = Math.floorMod(sequence - i, size);
+                long time = history.times.get(slot);
+                if (time == 0L || now - time >= repeatWindowMillis) {
+                    break;
+                }
+                if (Long.bitCount(history.fingerprints.get(slot) ^ fingerprint) <= maxDifference) {
+                    repeats++;
+                }
+            }
+        }
+
+        int slot = Math.floorMod(sequence, size);
+        history.fingerprints.set(slot, fingerprint);
+        history.times.set(slot, now);
+        if (flood) {
+            return Message.CHAT_SPAM_FLOOD;
+        }
+        return repeats >= maxRepeats ? Message.CHAT_SPAM_REPEAT : null;
+    }
+
+    // Counts a refused message against the player; returns true once they reach 'muteAfter' strikes
+    // within the strike window, after which the count starts over
+    boolean strike(History history, long now) {
+        long start = history.strikeWindowStart.get();
+        if (now - start >= strikeWindowMillis && history.strikeWindowStart.compareAndSet(start, now)) {
+            history.strikes.set(0);
+        }
+        if (history.strikes.incrementAndGet() < muteAfter) {
+            return false;
+        }
+        history.strikes.set(0);
+        return true;
+    }
+
+    // 64-bit SimHash of the folded message's character trigrams
+    static long fingerprint(CharSequence text) {
+        int[] votes = VOTES.get();
+        Arrays.fill(votes, 0);
+        long gram = 0L;
+        int folded = 0;
+        char last = ' ';
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                c = Character.toLowerCase(c);
+            } else if (Character.isWhitespace(c)) {
+                c = ' ';
+            } else {
+                continue;
+            }
+            if (c == last) {
+                continue;
+            }
+            last = c;
+            // The last three folded characters, 16 bits each
+            gram = ((gram << 16) | c) & 0xFFFFFFFFFFFFL;
+            if (++folded >= 3) {
+                vote(votes, gram);
+            }
+        }
+        if (folded < 3) {
+            vote(votes, gram);
+        }
+        long fingerprint = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (votes[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    private static void vote(int[] votes, long gram) {
+        long hash = mix(gram);
+        for (int bit = 0; bit < 64; bit++) {
+            votes[bit] += (int) ((hash >>> bit) & 1L) * 2 - 1;
+        }
+    }
+
+    // Murmur3 finalizer
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+}
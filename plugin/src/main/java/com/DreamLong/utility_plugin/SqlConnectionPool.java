@@ -0,0 +1,99 @@
+package com.DreamLong.utility_plugin;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Small fixed-size JDBC connection pool for the embedded database
+final class SqlConnectionPool implements Closeable {
+
+    // Prepares each new connection (pragmas, session settings)
+    interface Initializer {
+        void initialize(Connection connection) throws SQLException;
+    }
+
+    private final BlockingQueue<Connection> idle;
+    private final String url;
+    private final Initializer initializer;
+    private final long borrowTimeoutMillis;
+
+    SqlConnectionPool(String url, int size, long borrowTimeoutMillis, Initializer initializer) throws SQLException {
+        this.url = url;
+        this.initializer = initializer;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, size));
+        for (int i = 0; i < Math.max(1, size); i++) {
+            idle.add(open());
+        }
+    }
+
+    // Takes a connection, waiting up to the borrow timeout for one to be returned
+    Connection borrow() throws SQLException {
+        Connection connection;
+        try {
+            connection = idle.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        if (connection == null) {
+            throw new SQLException("No database connection available after " + borrowTimeoutMillis + " ms");
+        }
+        if (isUsable(connection)) {
+            return connection;
+        }
+        closeQuietly(connection);
+        try {
+            return open();
+        } catch (SQLException | RuntimeException e) {
+            // Keep the slot: the closed connection goes back and the next borrow tries to reopen it
+            idle.offer(connection);
+            throw e;
+        }
+    }
+
+    // Returns a borrowed connection; broken connections are replaced on the next borrow
+    void release(Connection connection) {
+        if (!idle.offer(connection)) {
+            closeQuietly(connection);
+        }
+    }
+
+    @Override
+    public void close() {
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            closeQuietly(connection);
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try {
+            initializer.initialize(connection);
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(connection);
+            throw e;
+        }
+        return connection;
+    }
+
+    private static boolean isUsable(Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
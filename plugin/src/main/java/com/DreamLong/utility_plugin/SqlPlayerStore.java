@@ -0,0 +1,218 @@
+package com.DreamLong.utility_plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+// Embedded SQLite store. Ban and mute deadlines are kept in indexed columns
+// so punishment queries do not have to read every account.
+final class SqlPlayerStore implements PlayerStore {
+
+    private static final String COLUMNS = "username, password, warns, start_warns, mutes, start_mutes, bans, start_bans, login_attempts";
+
+    private static final String SELECT_ONE = "SELECT " + COLUMNS + " FROM players WHERE uuid = ?";
+    private static final String SELECT_ALL = "SELECT uuid, " + COLUMNS + " FROM players";
+    private static final String UPSERT = "INSERT INTO players (uuid, " + COLUMNS + ", ban_until, mute_until) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT(uuid) DO UPDATE SET username = excluded.username, password = excluded.password, "
+            + "warns = excluded.warns, start_warns = excluded.start_warns, mutes = excluded.mutes, "
+            + "start_mutes = excluded.start_mutes, bans = excluded.bans, start_bans = excluded.start_bans, "
+            + "login_attempts = excluded.login_attempts, ban_until = excluded.ban_until, mute_until = excluded.mute_until";
+
+    private final File databaseFile;
+    private final SqlConnectionPool pool;
+
+    SqlPlayerStore(File databaseFile, int poolSize) throws IOException {
+        this.databaseFile = databaseFile;
+        try {
+            this.pool = new SqlConnectionPool("jdbc:sqlite:" + databaseFile.getAbsolutePath(), poolSize, 10_000L, connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PRAGMA journal_mode=WAL");
+                    statement.execute("PRAGMA synchronous=NORMAL");
+                    statement.execute("PRAGMA busy_timeout=5000");
+                }
+            });
+            createSchema();
+        } catch (SQLException e) {
+            throw new IOException("Could not open " + databaseFile.getName(), e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return databaseFile.getName();
+    }
+
+    @Override
+    public int size() throws IOException {
+        Connection connection = borrow();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM players")) {
+            return result.next() ? result.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new IOException("Could not count players", e);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    @Override
+    public PlayerData load(UUID playerUUID) throws IOException {
+        Connection connection = borrow();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_ONE)) {
+            statement.setString(1, playerUUID.toString());
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? read(result, 1) : null;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not load player " + playerUUID, e);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    // Writes the whole batch in one transaction with a single batched statement
+    @Override
+    public void saveAll(Map<UUID, PlayerData> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Connection connection = borrow();
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(UPSERT)) {
+                for (Map.Entry<UUID, PlayerData> entry : batch.entrySet()) {
+                    PlayerData data = entry.getValue();
+                    statement.setString(1, entry.getKey().toString());
+                    statement.setString(2, data.getUsername());
+                    statement.setString(3, data.getPasswordHash());
+                    statement.setLong(4, data.getWarns());
+                    statement.setLong(5, data.getStartWarns());
+                    statement.setLong(6, data.getMutes());
+                    statement.setLong(7, data.getStartMutes());
+                    statement.setLong(8, data.getBans());
+                    statement.setLong(9, data.getStartBans());
+                    statement.setLong(10, data.getLoginAttempts());
+                    statement.setLong(11, PunishmentIndex.banDeadline(data.getBans(), data.getStartBans()));
+                    statement.setLong(12, PunishmentIndex.muteDeadline(data.getMutes(), data.getStartMutes()));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not save a batch of " + batch.size() + " players", e);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<UUID, PlayerData> consumer) throws IOException {
+        Connection connection = borrow();
+        try (Statement statement = connection.createStatement()) {
+            statement.setFetchSize(1024);
+            try (ResultSet result = statement.executeQuery(SELECT_ALL)) {
+                while (result.next()) {
+                    consumer.accept(UUID.fromString(result.getString(1)), read(result, 2));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not read players", e);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    @Override
+    public List<UUID> findBanned(long now) throws IOException {
+        return queryUUIDs("SELECT uuid FROM players WHERE ban_until > ?", now);
+    }
+
+    @Override
+    public List<UUID> findMuted(long now) throws IOException {
+        return queryUUIDs("SELECT uuid FROM players WHERE mute_until > ?", now);
+    }
+
+    @Override
+    public List<UUID> findWarnedAtLeast(long warns) throws IOException {
+        return queryUUIDs("SELECT uuid FROM players WHERE warns >= ?", warns);
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private void createSchema() throws SQLException {
+        Connection connection = pool.borrow();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS players ("
+                    + "uuid CHAR(36) PRIMARY KEY, "
+                    + "username VARCHAR(32), "
+                    + "password VARCHAR(128), "
+                    + "warns BIGINT NOT NULL DEFAULT 0, "
+                    + "start_warns BIGINT NOT NULL DEFAULT 0, "
+                    + "mutes BIGINT NOT NULL DEFAULT 0, "
+                    + "start_mutes BIGINT NOT NULL DEFAULT 0, "
+                    + "bans BIGINT NOT NULL DEFAULT 0, "
+                    + "start_bans BIGINT NOT NULL DEFAULT 0, "
+                    + "login_attempts BIGINT NOT NULL DEFAULT 0, "
+                    + "ban_until BIGINT NOT NULL DEFAULT 0, "
+                    + "mute_until BIGINT NOT NULL DEFAULT 0)");
+            statement.execute("CREATE INDEX IF NOT EXISTS players_ban_until ON players (ban_until)");
+            statement.execute("CREATE INDEX IF NOT EXISTS players_mute_until ON players (mute_until)");
+            statement.execute("CREATE INDEX IF NOT EXISTS players_warns ON players (warns)");
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    private List<UUID> queryUUIDs(String sql, long parameter) throws IOException {
+        Connection connection = borrow();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, parameter);
+            List<UUID> uuids = new ArrayList<>();
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    uuids.add(UUID.fromString(result.getString(1)));
+                }
+            }
+            return uuids;
+        } catch (SQLException e) {
+            throw new IOException("Could not query players", e);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    private static PlayerData read(ResultSet result, int column) throws SQLException {
+        return new PlayerData(result.getString(column), result.getString(column + 1),
+                result.getLong(column + 2), result.getLong(column + 3),
+                result.getLong(column + 4), result.getLong(column + 5),
+                result.getLong(column + 6), result.getLong(column + 7),
+                result.getLong(column + 8));
+    }
+
+    private Connection borrow() throws IOException {
+        try {
+            return pool.borrow();
+        } catch (SQLException e) {
+            throw new IOException("Could not get a database connection", e);
+        }
+    }
+}
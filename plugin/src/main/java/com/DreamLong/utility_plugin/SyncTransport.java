@@ -0,0 +1,19 @@
+package com.DreamLong.utility_plugin;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+// Carries batches of encoded sync deltas between the servers of a network. Selected with sync.transport
+// in config.yml. Only the sync thread calls these methods.
+interface SyncTransport extends Closeable {
+
+    // Short name used in log messages
+    String getName();
+
+    // Sends one batch to every other server
+    void publish(byte[] batch) throws IOException;
+
+    // Returns the batches other servers published since the last call, oldest first
+    List<byte[]> poll() throws IOException;
+}
@@ -0,0 +1,120 @@
+package com.DreamLong.utility_plugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Hashed timing wheel keyed by K. Scheduling and cancelling are O(1), and each tick only visits
+// the one bucket it lands on, so the cost of advancing does not grow with the number of timers.
+// A key has at most one deadline; scheduling it again replaces the previous one.
+final class TimingWheel<K> {
+
+    private static final class Node<K> {
+        final K key;
+        final long deadline;
+        long rounds;
+        int bucket;
+        Node<K> prev;
+        Node<K> next;
+
+        Node(K key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+
+    private final long tickMillis;
+    private final long origin;
+    private final Node<K>[] buckets;
+    private final int mask;
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+    private long currentTick;
+
+    // bucketCount is rounded up to a power of two
+    @SuppressWarnings("unchecked")
+    TimingWheel(int bucketCount, long tickMillis, long now) {
+        int size = Integer.highestOneBit(Math.max(2, bucketCount) - 1) << 1;
+        this.tickMillis = Math.max(1L, tickMillis);
+        this.origin = now;
+        this.buckets = (Node<K>[]) new Node[size];
+        this.mask = size - 1;
+    }
+
+    // Schedules a key to expire at the given time; deadlines in the past expire on the next tick
+    synchronized void schedule(K key, long deadline) {
+        cancel(key);
+        long targetTick = Math.max(tickOf(deadline), currentTick + 1);
+        Node<K> node = new Node<>(key, deadline);
+        node.rounds = (targetTick - currentTick - 1) / buckets.length;
+        node.bucket = (int) (targetTick & mask);
+        node.next = buckets[node.bucket];
+        if (node.next != null) {
+            node.next.prev = node;
+        }
+        buckets[node.bucket] = node;
+        nodes.put(key, node);
+    }
+
+    // Removes a key's deadline; returns false if it had none
+    synchronized boolean cancel(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    // Returns the deadline scheduled for a key, or 0 if there is none
+    synchronized long getDeadline(K key) {
+        Node<K> node = nodes.get(key);
+        return node == null ? 0L : node.deadline;
+    }
+
+    synchronized int size() {
+        return nodes.size();
+    }
+
+    // Moves the wheel up to the given time and returns the keys that expired, in no particular order
+    synchronized List<K> advance(long now) {
+        List<K> expired = new ArrayList<>();
+        // Only ticks that have fully passed are processed, so nothing expires early
+        long nowTick = Math.max(0L, (now - origin) / tickMillis);
+        while (currentTick < nowTick) {
+            currentTick++;
+            Node<K> node = buckets[(int) (currentTick & mask)];
+            while (node != null) {
+                Node<K> next = node.next;
+                if (node.rounds > 0) {
+                    node.rounds--;
+                } else {
+                    unlink(node);
+                    nodes.remove(node.key);
+                    expired.add(node.key);
+                }
+                node = next;
+            }
+        }
+        return expired;
+    }
+
+    // First tick at or after the given time
+    private long tickOf(long time) {
+        long elapsed = time - origin;
+        return elapsed <= 0 ? 0L : (elapsed + tickMillis - 1) / tickMillis;
+    }
+
+    private void unlink(Node<K> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            buckets[node.bucket] = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+}
@@ -1,341 +1,1489 @@
+package com.DreamLong.utility_plugin;
+
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
+import io.papermc.paper.event.player.AsyncChatEvent;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import org.bukkit.Location;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerInteractEntityEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitTask;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
 
 public final class UtilityPlugin extends JavaPlugin implements Listener {
 
-    // Prefix for all plugin messages in the chat
-    private final String prefix = ChatColor.GRAY + "[" + ChatColor.DARK_AQUA + "Utility" + ChatColor.GRAY + "]" + ChatColor.RESET + " ";
+    // Player-facing messages, compiled from messages.yml
+    private final Messages messages = new Messages(getLogger());
     
-    // Maps to store player data and scheduled tasks
+    // Maps to store player data and login locations
     private final Map<UUID, PlayerData> playerDataMap = new ConcurrentHashMap<>();
-    private final Map<UUID, BukkitTask> loginTasks = new ConcurrentHashMap<>();
     private final Map<UUID, Location> playerLocations = new ConcurrentHashMap<>();
+
+    // Login and mute state of online players, read by the async chat handler
+    private final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+    // Entity ids of online players who have not logged in, for the per-event lockdown checks
+    private final AuthLockdown authLockdown = new AuthLockdown();
+    
+    // Active bans and mutes for every known account, readable from any thread
+    private final PunishmentIndex punishmentIndex = new PunishmentIndex();
+    
+    // Timers for temporary bans and mutes; checked once a second on the main thread
+    private static final int EXPIRY_WHEEL_BUCKETS = 512;
+    private static final long EXPIRY_TICK_MILLIS = 1000L;
+    private static final int MAX_EXPIRIES_PER_TICK = 200;
+    private TimingWheel<UUID> banExpiry;
+    private TimingWheel<UUID> muteExpiry;
+
+    // Deadlines for players to log in or register, on the same one-second tick
+    private TimingWheel<UUID> loginTimeouts;
+    private long loginTimeoutMillis;
+    
+    // Current and past names of every known account, so commands work on offline players
+    private final NameIndex nameIndex = new NameIndex();
     
-    // Folder to store player data files
-    private File playersFolder;
+    // Storage backend for player data, selected in config.yml
+    private PlayerStore playerStore;
+
+    // Writes player data to disk off the main thread
+    private WriteBehindQueue<PlayerData> persistenceQueue;
+
+    // Password hashing runs on a bounded pool so the KDF cost never lands on the server thread
+    private PasswordHasher passwordHasher;
+    private ThreadPoolExecutor passwordExecutor;
+    private final Set<UUID> pendingPasswordChecks = ConcurrentHashMap.newKeySet();
+
+    // Limits on login/register attempts and joins, checked before any hashing or disk access
+    private static final int RATE_LIMIT_STRIPES = 4096;
+    private RateLimiter attemptsPerPlayer;
+    private RateLimiter attemptsPerIp;
+    private RateLimiter joinsPerIp;
+    private JoinCircuitBreaker joinBreaker;
+
+    // Latency histograms and counters, shown by /utility stats and exported in the Prometheus format
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final MetricsRegistry.Histogram saveTimer = metrics.histogram("utility_save_player_seconds",
+            "Time to snapshot a player record and queue it for writing");
+    private final MetricsRegistry.Histogram loadTimer = metrics.histogram("utility_load_player_seconds",
+            "Time to load a player record from the store");
+    private final MetricsRegistry.Counter mainThreadLoads = metrics.counter("utility_main_thread_loads_total",
+            "Player records read from the store on the server thread");
+    private final MetricsRegistry.Histogram flushTimer = metrics.histogram("utility_persistence_flush_seconds",
+            "Time to write a batch of player records to the store");
+    private final MetricsRegistry.Histogram hashTimer = metrics.histogram("utility_password_hash_seconds",
+            "Time to hash or verify a password on the verification pool");
+    private final MetricsRegistry.Counter loginSuccesses = metrics.counter("utility_logins_total",
+            "Finished /login attempts by result", "result", "success");
+    private final MetricsRegistry.Counter loginFailures = metrics.counter("utility_logins_total",
+            "Finished /login attempts by result", "result", "failure");
+    private final MetricsRegistry.Histogram journalTimer = metrics.histogram("utility_journal_append_seconds",
+            "Time to append a moderation action to the journal");
+    private final MetricsRegistry.Counter registrations = metrics.counter("utility_registrations_total",
+            "Accounts created with /register");
+    private MetricsExporter metricsExporter;
+
+    // Recent warnings of every player and the automatic punishments they lead to
+    private long recentWarningMillis;
+    // Index of recentWarningMillis among the ledger's windows
+    private int recentWarningsWindow;
+    private EscalationLadder escalationLadder;
+    private WarningLedger warningLedger;
+    private final Object warningsFileLock = new Object();
+
+    // Banned addresses and ranges, checked at pre-login; temporary ones expire on the one-second tick
+    private final AddressBans addressBans = new AddressBans();
+    private TimingWheel<String> addressBanExpiry;
+    private final Object addressBansFileLock = new Object();
+    // False after ip-bans.dat failed to load and could not be moved aside, so saving cannot overwrite it
+    private volatile boolean addressBansWritable = true;
+
+    // Join addresses of every account, for /alts and for catching alts of banned accounts at pre-login
+    private IpHistory ipHistory;
+    private String bannedAltAction;
+    private final Object ipHistoryFileLock = new Object();
+    // False after ip-history.dat failed to load and could not be moved aside, so saving cannot overwrite it
+    private volatile boolean ipHistoryWritable = true;
+
+    // Blocked words in chat, matched on the chat threads; /utility reload-filter swaps in a new automaton
+    private volatile ChatFilter chatFilter;
+    private volatile String chatFilterAction;
+    private final MetricsRegistry.Counter chatFilterMatches = metrics.counter("utility_chat_filter_matches_total",
+            "Chat messages that contained a blocked word");
+
+    // Chat flood and repeat detection on the chat threads, or null when it is off
+    private SpamDetector spamDetector;
+    private long spamMuteMinutes;
+    private final MetricsRegistry.Counter spamFloods = metrics.counter("utility_chat_spam_total",
+            "Chat messages refused by the spam detector", "reason", "flood");
+    private final MetricsRegistry.Counter spamRepeats = metrics.counter("utility_chat_spam_total",
+            "Chat messages refused by the spam detector", "reason", "repeat");
+
+    // Shares punishments and accounts with the other servers of a network, when enabled
+    private PunishmentSync sync;
+
+    // Every moderation action, kept in an append-only journal and read back by /history
+    private static final int HISTORY_PAGE_SIZE = 8;
+    private ModerationJournal journal;
+
+    // Point-in-time backups of the store; taking one pauses store writes, never the server thread
+    private final ReentrantLock storeWrites = new ReentrantLock();
+    private final AtomicBoolean backupRunning = new AtomicBoolean();
+    private BackupManager backups;
+
+    // Bulk imports and exports of accounts and bans, streamed off the main thread
+    private static final int IMPORT_BATCH_SIZE = 512;
+    private static final long TRANSFER_PROGRESS_MILLIS = 2000L;
+    private final AtomicBoolean transferRunning = new AtomicBoolean();
 
     @Override
     public void onEnable() {
         getLogger().info("UtilityPlugin has been enabled!");
         
         // Register all command executors with the plugin
-        getCommand("login").setExecutor(new LoginCommandExecutor());
-        getCommand("register").setExecutor(new RegisterCommandExecutor());
-        getCommand("setlogin").setExecutor(new SetLoginCommandExecutor());
-        getCommand("ban").setExecutor(new BanCommandExecutor());
-        getCommand("unban").setExecutor(new UnbanCommandExecutor());
-        getCommand("tempban").setExecutor(new TempBanCommandExecutor());
-        getCommand("kick").setExecutor(new KickCommandExecutor());
-        getCommand("mute").setExecutor(new MuteCommandExecutor());
-        getCommand("unmute").setExecutor(new UnMuteCommandExecutor());
-        getCommand("warn").setExecutor(new WarnCommandExecutor());
-        getCommand("unwarn").setExecutor(new UnwarnCommandExecutor());
-        getCommand("checkwarn").setExecutor(new CheckWarnCommandExecutor());
-        getCommand("checkban").setExecutor(new CheckBanCommandExecutor());
-        getCommand("checkmute").setExecutor(new CheckMuteCommandExecutor());
+        registerCommand("login", new LoginCommandExecutor());
+        registerCommand("register", new RegisterCommandExecutor());
+        registerCommand("setlogin", new SetLoginCommandExecutor());
+        registerCommand("ban", new BanCommandExecutor());
+        registerCommand("unban", new UnbanCommandExecutor());
+        registerCommand("tempban", new TempBanCommandExecutor());
+        registerCommand("kick", new KickCommandExecutor());
+        registerCommand("mute", new MuteCommandExecutor());
+        registerCommand("unmute", new UnMuteCommandExecutor());
+        registerCommand("warn", new WarnCommandExecutor());
+        registerCommand("unwarn", new UnwarnCommandExecutor());
+        registerCommand("checkwarn", new CheckWarnCommandExecutor());
+        registerCommand("checkban", new CheckBanCommandExecutor());
+        registerCommand("checkmute", new CheckMuteCommandExecutor());
+        registerCommand("history", new HistoryCommandExecutor());
+        registerCommand("alts", new AltsCommandExecutor());
+        registerCommand("ipban", new IpBanCommandExecutor());
+        registerCommand("rangeban", new RangeBanCommandExecutor());
+        registerCommand("unipban", new UnIpBanCommandExecutor());
+        registerCommand("utility", new UtilityCommandExecutor());
         
         // Register this class to listen for events
         getServer().getPluginManager().registerEvents(this, this);
         
         // Save the default configuration file if it doesn't exist
         saveDefaultConfig();
+        loadMessages();
         
-        // Load all player data from the files
-        loadAllData();
-        
-        // Create the players data folder if it doesn't exist
-        playersFolder = new File(getDataFolder(), "players");
-        if (!playersFolder.exists()) {
-            playersFolder.mkdirs();
+        // Set up the attempt and join limits
+        attemptsPerPlayer = createRateLimiter("rate-limits.attempts-per-player", 6, 3);
+        attemptsPerIp = createRateLimiter("rate-limits.attempts-per-ip", 20, 10);
+        joinsPerIp = createRateLimiter("rate-limits.joins-per-ip", 10, 5);
+        joinBreaker = new JoinCircuitBreaker(getConfig().getInt("rate-limits.join-breaker.per-minute", 120),
+                getConfig().getInt("rate-limits.join-breaker.burst", 30),
+                getConfig().getLong("rate-limits.join-breaker.cooldown-seconds", 60L), getLogger());
+
+        // Open the configured store and index its accounts
+        long now = System.currentTimeMillis();
+        banExpiry = new TimingWheel<>(EXPIRY_WHEEL_BUCKETS, EXPIRY_TICK_MILLIS, now);
+        muteExpiry = new TimingWheel<>(EXPIRY_WHEEL_BUCKETS, EXPIRY_TICK_MILLIS, now);
+        loginTimeouts = new TimingWheel<>(EXPIRY_WHEEL_BUCKETS, EXPIRY_TICK_MILLIS, now);
+        addressBanExpiry = new TimingWheel<>(EXPIRY_WHEEL_BUCKETS, EXPIRY_TICK_MILLIS, now);
+        try {
+            addressBans.load(new File(getDataFolder(), "ip-bans.dat"));
+            for (AddressBans.Ban ban : addressBans.list()) {
+                if (ban.until != PunishmentIndex.PERMANENT) {
+                    addressBanExpiry.schedule(ban.range, ban.until);
+                }
+            }
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Could not load the address bans; none are enforced.", e);
+            addressBansWritable = setAsideUnreadable(new File(getDataFolder(), "ip-bans.dat"));
+        }
+        loginTimeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(1L, getConfig().getLong("login.timeout-seconds", 300L)));
+        nameIndex.load(new File(getDataFolder(), "names.yml"));
+        recentWarningMillis = TimeUnit.DAYS.toMillis(Math.max(1L, getConfig().getLong("warnings.recent-days", 30L)));
+        escalationLadder = new EscalationLadder(getConfig().getMapList("warnings.escalation"), getLogger(), recentWarningMillis);
+        warningLedger = new WarningLedger(Math.max(getConfig().getInt("warnings.history-size", 32), escalationLadder.getMaxCount()),
+                escalationLadder.windows());
+        recentWarningsWindow = escalationLadder.windowIndex(recentWarningMillis);
+        warningLedger.load(new File(getDataFolder(), "warnings.yml"));
+        ipHistory = new IpHistory(getConfig().getInt("alts.max-accounts-per-address", 16));
+        bannedAltAction = getConfig().getString("alts.banned-alt-action", "flag").toLowerCase();
+        loadChatFilter();
+        if (getConfig().getBoolean("chat-spam.enabled", true)) {
+            spamDetector = new SpamDetector(getConfig().getInt("chat-spam.max-messages", 5),
+                    TimeUnit.SECONDS.toMillis(getConfig().getLong("chat-spam.window-seconds", 5L)),
+                    getConfig().getInt("chat-spam.max-repeats", 2),
+                    TimeUnit.SECONDS.toMillis(getConfig().getLong("chat-spam.repeat-window-seconds", 30L)),
+                    getConfig().getInt("chat-spam.max-difference", 10),
+                    getConfig().getInt("chat-spam.mute-after", 3),
+                    TimeUnit.SECONDS.toMillis(getConfig().getLong("chat-spam.strike-window-seconds", 60L)));
+            spamMuteMinutes = Math.max(1L, getConfig().getLong("chat-spam.mute-minutes", 10L));
+        }
+        try {
+            ipHistory.load(new File(getDataFolder(), "ip-history.dat"));
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Could not load the IP history; starting with an empty one.", e);
+            ipHistoryWritable = setAsideUnreadable(new File(getDataFolder(), "ip-history.dat"));
+        }
+        try {
+            playerStore = openPlayerStore();
+            sync = createSync();
+            loadAllData();
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Could not open the player store, disabling the plugin.", e);
+            getServer().getPluginManager().disablePlugin(this);
+            return;
+        }
+
+        // Open the moderation journal; moderation keeps working without it
+        try {
+            journal = new ModerationJournal(new File(getDataFolder(), "journal"),
+                    getConfig().getLong("journal.segment-size-kb", 4096L) * 1024L, getLogger());
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Could not open the moderation journal; actions will not be recorded.", e);
+        }
+
+        // Open the backup folder; the plugin runs without backups if it cannot
+        try {
+            backups = new BackupManager(new File(getDataFolder(), getConfig().getString("backups.folder", "backups")),
+                    playerStore, storeWrites, getLogger(), getConfig().getInt("backups.max-chain-length", 24),
+                    getConfig().getInt("backups.keep-full", 3));
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Could not open the backup folder; /utility backup is unavailable.", e);
+        }
+
+        // Start the background writer for player data
+        persistenceQueue = new WriteBehindQueue<>("UtilityPlugin-Persistence", this::writePlayerBatch, getLogger(),
+                getConfig().getLong("persistence.flush-interval-ms", 500L),
+                getConfig().getInt("persistence.batch-size", 64));
+
+        if (sync != null) {
+            sync.start();
         }
+
+        // Start the password verification pool
+        passwordHasher = new PasswordHasher(getConfig().getInt("passwords.iterations", 210000));
+        int passwordThreads = Math.max(1, getConfig().getInt("passwords.threads", 2));
+        AtomicInteger passwordThreadId = new AtomicInteger();
+        passwordExecutor = new ThreadPoolExecutor(passwordThreads, passwordThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, getConfig().getInt("passwords.queue-size", 64))),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "UtilityPlugin-Passwords-" + passwordThreadId.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // Kick players who did not log in in time and expire temporary bans and mutes
+        Bukkit.getScheduler().runTaskTimer(this, () -> {
+            long tickNow = System.currentTimeMillis();
+            expireLoginTimeouts(tickNow);
+            expirePunishments(tickNow);
+            expireAddressBans(tickNow);
+        }, 20L, 20L);
+
+        // Save player records changed without an explicit save
+        long autosaveTicks = Math.max(1L, getConfig().getLong("persistence.autosave-seconds", 300L)) * 20L;
+        Bukkit.getScheduler().runTaskTimer(this, this::saveAllData, autosaveTicks, autosaveTicks);
+
+        // Save changed warning and IP histories once a minute
+        Bukkit.getScheduler().runTaskTimer(this, this::saveWarningsAsync, 1200L, 1200L);
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, this::saveIpHistory, 1200L, 1200L);
+
+        registerGauges();
+        startMetricsExport();
     }
 
     @Override
     public void onDisable() {
         getLogger().info("UtilityPlugin has been disabled!");
-        // Save all player data before the plugin shuts down
-        saveAllData();
+        if (metricsExporter != null) {
+            metricsExporter.close();
+        }
+        if (passwordExecutor != null) {
+            passwordExecutor.shutdownNow();
+        }
+        if (sync != null) {
+            sync.close();
+        }
+        // Save the player data that changed since it was last saved
+        int changed = saveAllData();
+        getLogger().info("Queued data for " + changed + " of " + playerDataMap.size() + " loaded players for saving.");
+        
+        // Wait until every queued write has reached disk, but not forever
+        boolean drained = true;
+        if (persistenceQueue != null) {
+            long timeoutSeconds = Math.max(1L, getConfig().getLong("persistence.shutdown-timeout-seconds", 30L));
+            drained = persistenceQueue.close(TimeUnit.SECONDS.toMillis(timeoutSeconds));
+            if (drained) {
+                getLogger().info("Persistence queue drained: " + persistenceQueue.getWrittenCount() + " writes for "
+                        + persistenceQueue.getSubmittedCount() + " saves (average flush " + String.format("%.2f", persistenceQueue.getAverageFlushMillis()) + " ms).");
+            } else {
+                getLogger().severe("The persistence queue did not finish within " + timeoutSeconds + " s or failed to write; "
+                        + (persistenceQueue.getDepth() + persistenceQueue.getLostCount()) + " player records were not written.");
+            }
+        }
+        if (backups != null) {
+            try {
+                backups.savePendingChanges();
+            } catch (IOException e) {
+                getLogger().log(Level.SEVERE, "Could not save the changes since the last backup; the next backup will be a full one.", e);
+            }
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                getLogger().log(Level.SEVERE, "Could not close the moderation journal.", e);
+            }
+        }
+        try {
+            nameIndex.save(new File(getDataFolder(), "names.yml"));
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Could not save the name history.", e);
+        }
+        if (warningLedger != null) {
+            synchronized (warningsFileLock) {
+                try {
+                    warningLedger.save(new File(getDataFolder(), "warnings.yml"));
+                } catch (IOException e) {
+                    getLogger().log(Level.SEVERE, "Could not save the warning history.", e);
+                }
+            }
+        }
+        if (ipHistory != null) {
+            saveIpHistory();
+        }
+        // Async saves still queued are cancelled with the plugin's tasks
+        saveAddressBans();
+        // A writer still running after the timeout keeps the store open rather than fail mid-write
+        if (playerStore != null && drained) {
+            try {
+                playerStore.close();
+            } catch (IOException e) {
+                getLogger().log(Level.SEVERE, "Could not close the player store.", e);
+            }
+        }
+    }
+
+    // Loads messages.yml, writing the bundled copy on first start; missing entries use the bundled text
+    private void loadMessages() {
+        File file = new File(getDataFolder(), "messages.yml");
+        if (!file.exists()) {
+            saveResource("messages.yml", false);
+        }
+        YamlConfiguration defaults = null;
+        InputStream bundled = getResource("messages.yml");
+        if (bundled != null) {
+            try (Reader reader = new InputStreamReader(bundled, StandardCharsets.UTF_8)) {
+                defaults = YamlConfiguration.loadConfiguration(reader);
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Could not read the bundled messages.yml.", e);
+            }
+        }
+        messages.load(YamlConfiguration.loadConfiguration(file), defaults);
     }
 
-    // Loads all player data from the 'players' folder
-    private void loadAllData() {
-        playersFolder = new File(getDataFolder(), "players");
-        if (!playersFolder.exists()) {
+    // Compiles the chat filter from config.yml; leaves the filter off when it is disabled or has no entries
+    private void loadChatFilter() {
+        String action = getConfig().getString("chat-filter.action", "cancel").toLowerCase();
+        if (!action.equals("cancel") && !action.equals("censor") && !action.equals("warn")) {
+            getLogger().warning("Unknown chat-filter.action '" + action + "'; using 'cancel'.");
+            action = "cancel";
+        }
+        ChatFilter filter = null;
+        if (getConfig().getBoolean("chat-filter.enabled", true)) {
+            filter = ChatFilter.compile(getConfig().getStringList("chat-filter.words"),
+                    getConfig().getStringList("chat-filter.fragments"));
+            if (filter.size() == 0) {
+                filter = null;
+            }
+        }
+        chatFilterAction = action;
+        chatFilter = filter;
+        getLogger().info(filter == null ? "Chat filter is off." : "Chat filter loaded with " + filter.size() + " entries.");
+    }
+
+    // Snapshots the warning histories on the main thread and writes them in the background
+    private void saveWarningsAsync() {
+        YamlConfiguration snapshot = warningLedger.snapshotIfDirty();
+        if (snapshot == null) {
+            return;
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            synchronized (warningsFileLock) {
+                try {
+                    snapshot.save(new File(getDataFolder(), "warnings.yml"));
+                } catch (IOException e) {
+                    warningLedger.markDirty();
+                    getLogger().log(Level.SEVERE, "Could not save the warning history.", e);
+                }
+            }
+        });
+    }
+
+    // Writes the address bans; safe to call from any thread
+    private void saveAddressBans() {
+        if (!addressBansWritable) {
+            getLogger().warning("Not saving the address bans: ip-bans.dat could not be read and would be overwritten.");
             return;
         }
+        synchronized (addressBansFileLock) {
+            try {
+                addressBans.save(new File(getDataFolder(), "ip-bans.dat"));
+            } catch (IOException e) {
+                getLogger().log(Level.SEVERE, "Could not save the address bans.", e);
+            }
+        }
+    }
+
+    // Renames a data file that failed to load, so the next save starts a new file instead of replacing the
+    // records that could not be read; returns false if the file is still in place
+    private boolean setAsideUnreadable(File file) {
+        File aside = new File(file.getPath() + ".unreadable-" + System.currentTimeMillis());
+        try {
+            Files.move(file.toPath(), aside.toPath());
+            getLogger().warning("Moved the unreadable " + file.getName() + " to " + aside.getName() + ".");
+            return true;
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Could not move " + file.getName() + " aside; it will not be saved until the plugin restarts.", e);
+            return false;
+        }
+    }
 
-        File[] playerFiles = playersFolder.listFiles((dir, name) -> name.toLowerCase().endsWith(".yml"));
-        if (playerFiles != null) {
-            for (File file : playerFiles) {
-                YamlConfiguration data = YamlConfiguration.loadConfiguration(file);
-                UUID playerUUID = UUID.fromString(file.getName().replace(".yml", ""));
-                String username = data.getString("Username");
-                String passwordHash = data.getString("Password");
-                long warns = data.getLong("Warns", 0);
-                long startWarns = data.getLong("StartWarns", 0);
-                long mutes = data.getLong("Mutes", 0);
-                long startMutes = data.getLong("StartMutes", 0);
-                long bans = data.getLong("Bans", 0);
-                long startBans = data.getLong("StartBans", 0);
-                long loginAttempts = data.getLong("loginAttempts", 0);
+    // Writes the IP history if it changed; safe to call from any thread
+    private void saveIpHistory() {
+        if (!ipHistoryWritable) {
+            return;
+        }
+        synchronized (ipHistoryFileLock) {
+            try {
+                ipHistory.saveIfDirty(new File(getDataFolder(), "ip-history.dat"));
+            } catch (IOException e) {
+                getLogger().log(Level.SEVERE, "Could not save the IP history.", e);
+            }
+        }
+    }
 
-                playerDataMap.put(playerUUID, new PlayerData(username, passwordHash, warns, startWarns, mutes, startMutes, bans, startBans, loginAttempts));
+    // Sets a command's executor, timing every invocation
+    private void registerCommand(String name, CommandExecutor executor) {
+        MetricsRegistry.Histogram latency = metrics.histogram("utility_command_seconds",
+                "Time spent in command executors", "command", name);
+        getCommand(name).setExecutor((sender, command, label, args) -> {
+            long start = System.nanoTime();
+            try {
+                return executor.onCommand(sender, command, label, args);
+            } finally {
+                latency.recordSince(start);
             }
+        });
+    }
+
+    // Gauges are read when /utility stats runs or the metrics are exported, possibly off the main thread
+    private void registerGauges() {
+        metrics.gauge("utility_pending_logins", "Online players who have not logged in or registered yet", this::getPendingLoginCount);
+        metrics.gauge("utility_loaded_players", "Player records held in memory", playerDataMap::size);
+        metrics.gauge("utility_active_punishments", "Accounts with an active ban or mute", punishmentIndex::size);
+        metrics.gauge("utility_persistence_queue_depth", "Player saves not yet written to the store", persistenceQueue::getDepth);
+        metrics.gauge("utility_password_queue_depth", "Password checks waiting for a thread", () -> passwordExecutor.getQueue().size());
+        metrics.gauge("utility_address_bans", "Banned addresses and ranges", addressBans::size);
+        metrics.gauge("utility_ip_history_entries", "Entries in the IP history", "kind", "accounts", ipHistory::getAccountCount);
+        metrics.gauge("utility_ip_history_entries", "Entries in the IP history", "kind", "addresses", ipHistory::getAddressCount);
+        metrics.gauge("utility_ip_history_entries", "Entries in the IP history", "kind", "pairs", ipHistory::getPairCount);
+        if (sync != null) {
+            metrics.counter("utility_sync_deltas_total", "Account changes sent to and received from other servers", "direction", "published", sync::getPublishedCount);
+            metrics.counter("utility_sync_deltas_total", "Account changes sent to and received from other servers", "direction", "received", sync::getReceivedCount);
+            metrics.counter("utility_sync_deltas_total", "Account changes sent to and received from other servers", "direction", "accepted", sync::getAcceptedCount);
+            metrics.gauge("utility_sync_pending", "Local account changes waiting to be published", sync::getPendingCount);
+        }
+        for (String stat : getRateLimitStats().keySet()) {
+            metrics.gauge("utility_rate_limit", "Attempt and join limit counters", "stat", stat, () -> getRateLimitStats().get(stat));
         }
-        getLogger().info("Successfully loaded data for " + playerDataMap.size() + " players.");
     }
 
-    // Saves all player data to the 'players' folder
-    private void saveAllData() {
+    // Starts the exporter chosen by metrics.export: 'file', 'http' or 'none'
+    private void startMetricsExport() {
+        String mode = getConfig().getString("metrics.export", "none").toLowerCase();
+        if (mode.equals("none")) {
+            return;
+        }
+        metricsExporter = new MetricsExporter(metrics, getLogger());
+        switch (mode) {
+            case "file":
+                metricsExporter.startFile(new File(getDataFolder(), getConfig().getString("metrics.file", "metrics.prom")),
+                        getConfig().getLong("metrics.file-interval-seconds", 15L));
+                break;
+            case "http":
+                try {
+                    metricsExporter.startHttp(getConfig().getInt("metrics.http-port", 9465));
+                } catch (IOException e) {
+                    getLogger().log(Level.SEVERE, "Could not start the metrics endpoint.", e);
+                }
+                break;
+            default:
+                getLogger().warning("Unknown metrics export '" + mode + "', metrics are not exported.");
+        }
+    }
+
+    // Reads a per-minute/burst pair from the config
+    private RateLimiter createRateLimiter(String path, int defaultPerMinute, int defaultBurst) {
+        return new RateLimiter(RATE_LIMIT_STRIPES, getConfig().getInt(path + ".per-minute", defaultPerMinute),
+                getConfig().getInt(path + ".burst", defaultBurst));
+    }
+
+    // Creates the store named by storage.engine, migrating the 'players' folder into it on first use
+    private PlayerStore openPlayerStore() throws IOException {
+        File playersFolder = new File(getDataFolder(), "players");
+        String engine = getConfig().getString("storage.engine", "yaml").toLowerCase();
+        PlayerStore store;
+        switch (engine) {
+            case "binary":
+                store = new BinaryPlayerStore(new File(getDataFolder(), "players.dat"), getLogger());
+                break;
+            case "sqlite":
+                store = new SqlPlayerStore(new File(getDataFolder(), getConfig().getString("storage.sqlite.file", "players.db")),
+                        getConfig().getInt("storage.sqlite.pool-size", 4));
+                break;
+            default:
+                if (!engine.equals("yaml")) {
+                    getLogger().warning("Unknown storage engine '" + engine + "', using yaml.");
+                }
+                return new YamlPlayerStore(playersFolder, getLogger(), getConfig().getInt("startup.parallelism", 0));
+        }
+
+        if (store.size() == 0 && playersFolder.isDirectory()) {
+            migratePlayerFolder(playersFolder, store);
+        }
+        return store;
+    }
+
+    // One-shot copy of the 'players' folder into a new store; the folder is kept as players-converted
+    private void migratePlayerFolder(File playersFolder, PlayerStore target) throws IOException {
+        long start = System.nanoTime();
+        Map<UUID, PlayerData> records = new ConcurrentHashMap<>();
+        // Closed before the folder is renamed, which also shuts down the store's writer pool
+        try (PlayerStore source = new YamlPlayerStore(playersFolder, getLogger(), getConfig().getInt("startup.parallelism", 0))) {
+            if (source.size() == 0) {
+                return;
+            }
+            source.forEach(records::put);
+        }
+        Map<UUID, PlayerData> batch = new LinkedHashMap<>();
+        for (Map.Entry<UUID, PlayerData> entry : records.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() >= 1024) {
+                target.saveAll(batch);
+                batch.clear();
+            }
+        }
+        target.saveAll(batch);
+
+        File backupFolder = new File(getDataFolder(), "players-converted");
+        if (!playersFolder.renameTo(backupFolder)) {
+            getLogger().warning("Could not rename " + playersFolder.getName() + " to " + backupFolder.getName() + "; it will not be read again.");
+        }
+        getLogger().info("Converted " + records.size() + " player files to " + target.getName() + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+    }
+
+    // Indexes all stored accounts. Full records are only kept in memory when startup.load-mode is 'full';
+    // otherwise they load on first access.
+    private void loadAllData() throws IOException {
+        boolean hydrate = "full".equalsIgnoreCase(getConfig().getString("startup.load-mode", "index"));
+
+        long start = System.nanoTime();
+        playerStore.forEach((playerUUID, playerData) -> {
+            indexPunishments(playerUUID, playerData);
+            nameIndex.record(playerUUID, playerData.getUsername());
+            if (hydrate) {
+                playerDataMap.put(playerUUID, playerData);
+                if (sync != null) {
+                    sync.observe(playerUUID, playerData);
+                }
+            }
+        });
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        getLogger().info("Indexed " + playerStore.size() + " accounts from " + playerStore.getName() + " ("
+                + punishmentIndex.size() + " with active punishments, " + playerDataMap.size() + " loaded) in " + elapsedMillis + " ms.");
+    }
+
+    // Queues every loaded record that changed since it was last saved; returns how many were queued
+    private int saveAllData() {
+        if (persistenceQueue == null) {
+            return 0;
+        }
+        int queued = 0;
         for (Map.Entry<UUID, PlayerData> entry : playerDataMap.entrySet()) {
-            UUID playerUUID = entry.getKey();
             PlayerData data = entry.getValue();
+            if (data.isDirty()) {
+                data.clearDirty();
+                persistenceQueue.submit(entry.getKey(), data.copy());
+                queued++;
+            }
+        }
+        return queued;
+    }
+    
+    // Queues data for a single player to be written to the store
+    private void savePlayerData(UUID playerUUID) {
+        PlayerData data = playerDataMap.get(playerUUID);
+        if (data == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        // Keep the punishment index in step with what gets persisted
+        indexPunishments(playerUUID, data);
+        data.clearDirty();
+        persistenceQueue.submit(playerUUID, data.copy());
+        if (sync != null) {
+            sync.publish(playerUUID, data);
+        }
+        saveTimer.recordSince(start);
+    }
 
-            File playerFile = new File(playersFolder, playerUUID.toString() + ".yml");
-            YamlConfiguration config = new YamlConfiguration();
-            config.set("Username", data.getUsername());
-            config.set("Password", data.getPasswordHash());
-            config.set("Warns", data.getWarns());
-            config.set("StartWarns", data.getStartWarns());
-            config.set("Mutes", data.getMutes());
-            config.set("StartMutes", data.getStartMutes());
-            config.set("Bans", data.getBans());
-            config.set("StartBans", data.getStartBans());
-            config.set("loginAttempts", data.getLoginAttempts());
+    // Writes a batch of player snapshots to the store (persistence thread only)
+    // Waits while a backup reads the store
+    private void writePlayerBatch(Map<UUID, PlayerData> batch) throws IOException {
+        storeWrites.lock();
+        long start = System.nanoTime();
+        try {
+            playerStore.saveAll(batch);
+            if (backups != null) {
+                backups.recordWritten(batch.keySet());
+            }
+            playerStore.maintain();
+        } finally {
+            flushTimer.recordSince(start);
+            storeWrites.unlock();
+        }
+    }
+    
+    // Loads data for a single player from the store
+    private void loadPlayerData(UUID playerUUID) {
+        // A save that has not reached disk yet is newer than the stored record
+        PlayerData queued = persistenceQueue.peek(playerUUID);
+        if (queued != null) {
+            PlayerData playerData = queued.copy();
+            playerDataMap.put(playerUUID, playerData);
+            indexPunishments(playerUUID, playerData);
+            if (sync != null) {
+                sync.observe(playerUUID, playerData);
+            }
+            return;
+        }
 
+        // Store reads on the server thread stall the tick; they are counted so regressions show up
+        if (Bukkit.isPrimaryThread()) {
+            mainThreadLoads.increment();
+        }
+        long start = System.nanoTime();
+        try {
+            PlayerData playerData = playerStore.load(playerUUID);
+            loadTimer.recordSince(start);
+            if (playerData != null) {
+                playerDataMap.put(playerUUID, playerData);
+                indexPunishments(playerUUID, playerData);
+                if (sync != null) {
+                    sync.observe(playerUUID, playerData);
+                }
+            }
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Could not load data for player " + playerUUID, e);
+        }
+    }
+
+    // Creates the sync subsystem configured under 'sync', or returns null when it is disabled
+    private PunishmentSync createSync() throws IOException {
+        if (!getConfig().getBoolean("sync.enabled", false)) {
+            return null;
+        }
+        String serverId = getConfig().getString("sync.server-id", "").replaceAll("[^A-Za-z0-9_]", "_");
+        if (serverId.isEmpty()) {
+            serverId = UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+        }
+        long retentionMillis = TimeUnit.SECONDS.toMillis(Math.max(10L, getConfig().getLong("sync.retention-seconds", 600L)));
+        String transportName = getConfig().getString("sync.transport", "folder").toLowerCase();
+        if (!transportName.equals("folder")) {
+            getLogger().warning("Unknown sync transport '" + transportName + "', using folder.");
+        }
+        File folder = new File(getConfig().getString("sync.folder", "sync"));
+        if (!folder.isAbsolute()) {
+            folder = new File(getDataFolder(), folder.getPath());
+        }
+        SyncTransport transport = new FolderSyncTransport(folder, serverId, retentionMillis, getLogger());
+        PunishmentSync created = new PunishmentSync(serverId, transport, getConfig().getLong("sync.interval-ms", 1000L),
+                new File(getDataFolder(), "sync-state.dat"), getLogger(), this::receiveRemoteDeltas);
+        try {
+            created.loadState();
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Could not read the sync state; changes replayed from other servers may undo newer local ones.", e);
+        }
+        return created;
+    }
+
+    // Reads the stored records of accounts changed on another server (sync thread), then applies the
+    // changes on the main thread
+    private void receiveRemoteDeltas(List<PunishmentSync.Delta> deltas) {
+        Map<UUID, PlayerData> stored = new HashMap<>();
+        for (PunishmentSync.Delta delta : deltas) {
+            if (playerDataMap.containsKey(delta.playerUUID)) {
+                continue;
+            }
+            PlayerData queued = persistenceQueue.peek(delta.playerUUID);
             try {
-                config.save(playerFile);
+                PlayerData data = queued != null ? queued.copy() : playerStore.load(delta.playerUUID);
+                if (data != null) {
+                    stored.put(delta.playerUUID, data);
+                }
             } catch (IOException e) {
-                getLogger().severe("Could not save data for player " + data.getUsername() + ": " + e.getMessage());
+                getLogger().log(Level.SEVERE, "Could not load data for player " + delta.playerUUID, e);
             }
         }
-        getLogger().info("Successfully saved data for " + playerDataMap.size() + " players.");
+        if (isEnabled()) {
+            Bukkit.getScheduler().runTask(this, () -> applyRemoteDeltas(deltas, stored));
+        }
     }
-    
-    // Saves data for a single player to their YML file
-    private void savePlayerData(UUID playerUUID) {
+
+    // Merges remote changes into the local records, the punishment index and the vanilla ban list
+    private void applyRemoteDeltas(List<PunishmentSync.Delta> deltas, Map<UUID, PlayerData> stored) {
+        long now = System.currentTimeMillis();
+        for (PunishmentSync.Delta delta : deltas) {
+            UUID playerUUID = delta.playerUUID;
+            PlayerData data = playerDataMap.get(playerUUID);
+            if (data == null) {
+                data = stored.get(playerUUID);
+                if (data == null) {
+                    data = new PlayerData(delta.values.getUsername(), null, 0, 0, 0, 0, 0, 0, 0);
+                }
+                // Everything the delta does not carry is unchanged, not new
+                sync.observe(playerUUID, data);
+                playerDataMap.put(playerUUID, data);
+            }
+            boolean wasBanned = isBanned(playerUUID);
+            delta.applyTo(data);
+            savePlayerData(playerUUID);
+            nameIndex.record(playerUUID, data.getUsername());
+            enforceBanChange(playerUUID, data.getUsername(), wasBanned, delta.origins[PunishmentSync.BAN]);
+            releaseIfOffline(playerUUID);
+        }
+    }
+
+    // Brings the server ban list and online players in line with a ban that changed outside a command
+    private void enforceBanChange(UUID playerUUID, String username, boolean wasBanned, String source) {
+        String playerName = getTargetName(playerUUID, username);
+        boolean banned = isBanned(playerUUID);
+        if (playerName != null && banned != wasBanned) {
+            if (banned) {
+                long banUntil = punishmentIndex.getBanUntil(playerUUID);
+                Bukkit.getBanList(org.bukkit.BanList.Type.NAME).addBan(playerName, null,
+                        banUntil == PunishmentIndex.PERMANENT ? null : new Date(banUntil), source);
+            } else {
+                Bukkit.getBanList(org.bukkit.BanList.Type.NAME).pardon(playerName);
+            }
+        }
+        Player online = Bukkit.getPlayer(playerUUID);
+        if (online != null && banned) {
+            online.kick(getBanMessage(playerUUID));
+        }
+    }
+
+    // Applies a batch of imported records and returns how many changed an account. Native records replace
+    // the account; bans only replace a shorter ban. The server ban list is not updated here, since it
+    // rewrites its file on every change.
+    private int applyImport(BulkTransfer.Format format, Map<UUID, PlayerData> imported, Map<UUID, PlayerData> stored) {
+        int applied = 0;
+        for (Map.Entry<UUID, PlayerData> entry : imported.entrySet()) {
+            UUID playerUUID = entry.getKey();
+            PlayerData data = entry.getValue();
+            if (format == BulkTransfer.Format.BANNED_PLAYERS) {
+                PlayerData existing = playerDataMap.get(playerUUID);
+                if (existing == null) {
+                    existing = stored.get(playerUUID);
+                }
+                if (existing != null) {
+                    if (PunishmentIndex.banDeadline(existing.getBans(), existing.getStartBans())
+                            >= PunishmentIndex.banDeadline(data.getBans(), data.getStartBans())) {
+                        continue;
+                    }
+                    existing.setBans(data.getBans());
+                    existing.setStartBans(data.getStartBans());
+                    if (existing.getUsername() == null) {
+                        existing.setUsername(data.getUsername());
+                    }
+                    data = existing;
+                }
+            }
+            playerDataMap.put(playerUUID, data);
+            savePlayerData(playerUUID);
+            nameIndex.record(playerUUID, data.getUsername());
+            Player online = Bukkit.getPlayer(playerUUID);
+            if (online != null && isBanned(playerUUID)) {
+                online.kick(getBanMessage(playerUUID));
+            }
+            releaseIfOffline(playerUUID);
+            applied++;
+        }
+        return applied;
+    }
+
+    // Adds imported address bans, keeping any existing ban that runs longer, and returns how many were added
+    private int applyAddressBanImport(List<AddressBans.Ban> bans) {
+        int applied = 0;
+        for (AddressBans.Ban ban : bans) {
+            AddressBans.Range range = AddressBans.parse(ban.range);
+            AddressBans.Ban existing = addressBans.get(range);
+            if (existing != null && existing.until >= ban.until) {
+                continue;
+            }
+            addressBans.add(range, ban);
+            if (ban.until != PunishmentIndex.PERMANENT) {
+                addressBanExpiry.schedule(ban.range, ban.until);
+            }
+            applied++;
+        }
+        if (applied > 0) {
+            kickAddressBanned(System.currentTimeMillis());
+        }
+        return applied;
+    }
+
+    // Replaces accounts with their restored records and saves them; accounts the backup does not have are kept
+    private void applyRestore(Map<UUID, PlayerData> records) {
+        for (Map.Entry<UUID, PlayerData> entry : records.entrySet()) {
+            UUID playerUUID = entry.getKey();
+            PlayerData restored = entry.getValue();
+            boolean wasBanned = isBanned(playerUUID);
+            playerDataMap.put(playerUUID, restored);
+            savePlayerData(playerUUID);
+            nameIndex.record(playerUUID, restored.getUsername());
+            enforceBanChange(playerUUID, restored.getUsername(), wasBanned, "backup restore");
+            releaseIfOffline(playerUUID);
+        }
+    }
+
+    // Returns a player's data, loading it from the store when the player is offline
+    private PlayerData getOrLoadPlayerData(UUID playerUUID) {
         PlayerData data = playerDataMap.get(playerUUID);
         if (data == null) {
+            loadPlayerData(playerUUID);
+            data = playerDataMap.get(playerUUID);
+        }
+        return data;
+    }
+
+    // Like getOrLoadPlayerData, but creates an empty record for players without an account
+    private PlayerData getOrCreatePlayerData(UUID playerUUID, String name) {
+        PlayerData data = getOrLoadPlayerData(playerUUID);
+        if (data == null) {
+            data = new PlayerData(name, null, 0, 0, 0, 0, 0, 0, 0);
+            data.markDirty();
+            playerDataMap.put(playerUUID, data);
+        }
+        return data;
+    }
+
+    // Drops data that was loaded for an offline command target; call after it has been saved
+    private void releaseIfOffline(UUID playerUUID) {
+        if (Bukkit.getPlayer(playerUUID) == null) {
+            playerDataMap.remove(playerUUID);
+        }
+    }
+
+    // Finds the account a command refers to: an online player first, then any known current or past name
+    private UUID resolveTarget(String name) {
+        Player online = Bukkit.getPlayerExact(name);
+        if (online != null) {
+            return online.getUniqueId();
+        }
+        return nameIndex.lookup(name);
+    }
+
+    // Returns the name to show for a command target
+    private String getTargetName(UUID playerUUID, String fallback) {
+        Player online = Bukkit.getPlayer(playerUUID);
+        if (online != null) {
+            return online.getName();
+        }
+        String name = nameIndex.getName(playerUUID);
+        return name != null ? name : fallback;
+    }
+
+    // Publishes the ban and mute deadlines of a record to the punishment index and the expiry timers
+    private void indexPunishments(UUID playerUUID, PlayerData data) {
+        long banUntil = PunishmentIndex.banDeadline(data.getBans(), data.getStartBans());
+        long muteUntil = PunishmentIndex.muteDeadline(data.getMutes(), data.getStartMutes());
+        punishmentIndex.update(playerUUID, banUntil, muteUntil);
+        PlayerSession session = sessions.get(playerUUID);
+        if (session != null) {
+            session.setMuteUntil(muteUntil);
+        }
+        scheduleExpiry(banExpiry, playerUUID, banUntil);
+        scheduleExpiry(muteExpiry, playerUUID, muteUntil);
+    }
+
+    // Temporary punishments get a timer; lifted and permanent ones lose theirs
+    private static void scheduleExpiry(TimingWheel<UUID> wheel, UUID playerUUID, long deadline) {
+        if (deadline == 0L || deadline == PunishmentIndex.PERMANENT) {
+            wheel.cancel(playerUUID);
+        } else if (wheel.getDeadline(playerUUID) != deadline) {
+            wheel.schedule(playerUUID, deadline);
+        }
+    }
+
+    // Kicks players whose login deadline has passed (main thread)
+    private void expireLoginTimeouts(long now) {
+        for (UUID playerUUID : loginTimeouts.advance(now)) {
+            Player player = Bukkit.getPlayer(playerUUID);
+            if (player == null || isLoggedIn(playerUUID)) {
+                continue;
+            }
+            PlayerData data = playerDataMap.get(playerUUID);
+            if (data == null || data.getPasswordHash() == null) {
+                player.kick(messages.render(Message.JOIN_REGISTER_TIMEOUT));
+            } else {
+                player.kick(messages.render(Message.JOIN_LOGIN_TIMEOUT));
+            }
+        }
+    }
+
+    // Applies an escalation rule to a warned player's record. Returns false when the player already has
+    // an equal or longer punishment of that kind, which the rule then leaves alone.
+    private boolean applyEscalation(PlayerData data, EscalationLadder.Rule rule, long now) {
+        switch (rule.action) {
+            case MUTE: {
+                long mutes = rule.minutes == -1 ? -1 : TimeUnit.MINUTES.toSeconds(rule.minutes);
+                if (PunishmentIndex.muteDeadline(data.getMutes(), data.getStartMutes()) >= PunishmentIndex.muteDeadline(mutes, now)) {
+                    return false;
+                }
+                data.setMutes(mutes);
+                data.setStartMutes(now);
+                return true;
+            }
+            case TEMPBAN:
+            case BAN: {
+                long bans = rule.action == EscalationLadder.Action.BAN ? -1 : rule.minutes;
+                if (PunishmentIndex.banDeadline(data.getBans(), data.getStartBans()) >= PunishmentIndex.banDeadline(bans, now)) {
+                    return false;
+                }
+                data.setBans(bans);
+                data.setStartBans(now);
+                return true;
+            }
+            default:
+                return true;
+        }
+    }
+
+    // Mutes a player the spam detector caught repeatedly, unless they are already muted
+    private void muteForSpam(UUID playerUUID, String playerName) {
+        if (isMuted(playerUUID)) {
             return;
         }
-    
-        File playerFile = new File(playersFolder, playerUUID.toString() + ".yml");
-        YamlConfiguration config = new YamlConfiguration();
-        config.set("Username", data.getUsername());
-        config.set("Password", data.getPasswordHash());
-        config.set("Warns", data.getWarns());
-        config.set("StartWarns", data.getStartWarns());
-        config.set("Mutes", data.getMutes());
-        config.set("StartMutes", data.getStartMutes());
-        config.set("Bans", data.getBans());
-        config.set("StartBans", data.getStartBans());
-        config.set("loginAttempts", data.getLoginAttempts());
-    
+        PlayerData data = getOrCreatePlayerData(playerUUID, playerName);
+        data.setMutes(TimeUnit.MINUTES.toSeconds(spamMuteMinutes));
+        data.setStartMutes(System.currentTimeMillis());
+        savePlayerData(playerUUID);
+        releaseIfOffline(playerUUID);
+        String reason = getConfig().getString("chat-spam.mute-reason", "Spamming");
+        recordAction(getName(), playerUUID, ModerationJournal.Action.MUTE, spamMuteMinutes, reason);
+
+        Player player = Bukkit.getPlayer(playerUUID);
+        if (player != null) {
+            messages.send(player, Message.MUTE_NOTIFY, getName(), reason);
+        }
+        messages.broadcast("utility.helper", Message.CHAT_SPAM_MUTED, playerName, spamMuteMinutes);
+    }
+
+    // Adds a warning to a player's record and applies the escalation it triggers, if any. The issuer, when
+    // there is one, is told the new warning count before the escalation is announced.
+    private void issueWarning(String actor, CommandSender issuer, UUID targetUUID, String targetName, String reason) {
+        Player target = Bukkit.getPlayer(targetUUID);
+        PlayerData targetData = getOrCreatePlayerData(targetUUID, targetName);
+        long now = System.currentTimeMillis();
+        targetData.setWarns(targetData.getWarns() + 1);
+        targetData.setStartWarns(now);
+
+        // Only this warning is checked against the ladder; earlier ones have already been
+        EscalationLadder.Rule escalation = escalationLadder.evaluate(warningLedger.add(targetUUID, now), now);
+        if (escalation != null && !applyEscalation(targetData, escalation, now)) {
+            escalation = null;
+        }
+        savePlayerData(targetUUID);
+        releaseIfOffline(targetUUID);
+        recordAction(actor, targetUUID, ModerationJournal.Action.WARN, 0, reason);
+
+        if (target != null) {
+            messages.send(target, Message.WARN_NOTIFY, actor, reason);
+        }
+        if (issuer != null) {
+            messages.send(issuer, Message.WARN_SUCCESS, targetName, targetData.getWarns());
+        }
+        if (escalation != null) {
+            announceEscalation(targetUUID, targetName, target, escalation);
+        }
+    }
+
+    // Tells everyone involved about an applied escalation and records it
+    private void announceEscalation(UUID targetUUID, String targetName, Player target, EscalationLadder.Rule rule) {
+        String reason = messages.renderPlain(Message.ESCALATION_REASON, rule.count, rule.getWindowDays());
+        switch (rule.action) {
+            case MUTE:
+                recordAction(getName(), targetUUID, ModerationJournal.Action.MUTE, rule.minutes, reason);
+                if (target != null) {
+                    messages.send(target, Message.MUTE_NOTIFY, getName(), reason);
+                }
+                break;
+            case TEMPBAN:
+                recordAction(getName(), targetUUID, ModerationJournal.Action.TEMPBAN, rule.minutes, reason);
+                Bukkit.getBanList(org.bukkit.BanList.Type.NAME).addBan(targetName, reason,
+                        new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(rule.minutes)), getName());
+                if (target != null) {
+                    target.kick(messages.render(Message.TEMPBAN_KICK, rule.minutes, reason));
+                }
+                break;
+            case BAN:
+                recordAction(getName(), targetUUID, ModerationJournal.Action.BAN, -1, reason);
+                Bukkit.getBanList(org.bukkit.BanList.Type.NAME).addBan(targetName, reason, null, getName());
+                if (target != null) {
+                    target.kick(messages.render(Message.BAN_KICK, reason));
+                }
+                break;
+            default:
+                recordAction(getName(), targetUUID, ModerationJournal.Action.KICK, 0, reason);
+                if (target != null) {
+                    target.kick(messages.render(Message.KICK_KICK, reason));
+                }
+        }
+        messages.broadcast("utility.helper", Message.ESCALATION_BROADCAST, targetName, rule.action.name().toLowerCase(), reason);
+    }
+
+    // Appends a moderation action to the journal; a failed write is logged and does not stop the action
+    private void recordAction(String actor, UUID target, ModerationJournal.Action action, long durationMinutes, String reason) {
+        if (journal == null) {
+            return;
+        }
+        long start = System.nanoTime();
         try {
-            config.save(playerFile);
+            journal.append(new ModerationJournal.Entry(System.currentTimeMillis(), target, action, durationMinutes, actor, reason));
         } catch (IOException e) {
-            getLogger().severe("Could not save data for player " + data.getUsername() + ": " + e.getMessage());
+            getLogger().log(Level.SEVERE, "Could not record " + action + " of " + target + " in the moderation journal.", e);
+        } finally {
+            journalTimer.recordSince(start);
         }
     }
-    
-    // Loads data for a single player from their YML file
-    private void loadPlayerData(UUID playerUUID) {
-        File playerFile = new File(playersFolder, playerUUID.toString() + ".yml");
-        if (!playerFile.exists()) {
+
+    // Number of online players who have not logged in or registered yet
+    public int getPendingLoginCount() {
+        return loginTimeouts == null ? 0 : loginTimeouts.size();
+    }
+
+    // Advances the expiry timers (main thread). Expiring offline accounts loads their records, so a large
+    // backlog, such as old bans found at startup, is spread over several runs.
+    private void expirePunishments(long now) {
+        int budget = MAX_EXPIRIES_PER_TICK;
+        budget -= expireDue(banExpiry, PunishmentExpireEvent.Type.BAN, now, budget);
+        expireDue(muteExpiry, PunishmentExpireEvent.Type.MUTE, now, Math.max(0, budget));
+    }
+
+    // Lifts temporary address bans whose deadline has passed
+    private void expireAddressBans(long now) {
+        boolean changed = false;
+        for (String text : addressBanExpiry.advance(now)) {
+            AddressBans.Range range = AddressBans.parse(text);
+            AddressBans.Ban ban = range == null ? null : addressBans.get(range);
+            // Lifted or replaced since the timer was set
+            if (ban != null && !ban.isActive(now)) {
+                addressBans.remove(range);
+                getLogger().info("The temporary ban of " + ban.range + " has expired.");
+                changed = true;
+            }
+        }
+        if (changed) {
+            Bukkit.getScheduler().runTaskAsynchronously(this, this::saveAddressBans);
+        }
+    }
+
+    // Expires up to 'budget' due entries of one wheel; the rest are put back for the next run
+    private int expireDue(TimingWheel<UUID> wheel, PunishmentExpireEvent.Type type, long now, int budget) {
+        int expired = 0;
+        for (UUID playerUUID : wheel.advance(now)) {
+            if (expired < budget) {
+                expirePunishment(playerUUID, type, now);
+                expired++;
+            } else {
+                wheel.schedule(playerUUID, now);
+            }
+        }
+        return expired;
+    }
+
+    // Clears a temporary ban or mute whose deadline has passed, then announces it
+    private void expirePunishment(UUID playerUUID, PunishmentExpireEvent.Type type, long now) {
+        boolean ban = type == PunishmentExpireEvent.Type.BAN;
+        long deadline = ban ? punishmentIndex.getBanUntil(playerUUID) : punishmentIndex.getMuteUntil(playerUUID);
+        // Lifted, made permanent or extended since the timer was set
+        if (deadline == 0L || deadline == PunishmentIndex.PERMANENT || deadline > now) {
             return;
         }
-    
-        YamlConfiguration data = YamlConfiguration.loadConfiguration(playerFile);
-        String username = data.getString("Username");
-        String passwordHash = data.getString("Password");
-        long warns = data.getLong("Warns", 0);
-        long startWarns = data.getLong("StartWarns", 0);
-        long mutes = data.getLong("Mutes", 0);
-        long startMutes = data.getLong("StartMutes", 0);
-        long bans = data.getLong("Bans", 0);
-        long startBans = data.getLong("StartBans", 0);
-        long loginAttempts = data.getLong("loginAttempts", 0);
-    
-        playerDataMap.put(playerUUID, new PlayerData(username, passwordHash, warns, startWarns, mutes, startMutes, bans, startBans, loginAttempts));
+
+        String playerName = getTargetName(playerUUID, null);
+        PlayerData data = getOrLoadPlayerData(playerUUID);
+        if (data != null) {
+            if (ban) {
+                data.setBans(0);
+                data.setStartBans(0);
+            } else {
+                data.setMutes(0);
+                data.setStartMutes(0);
+            }
+            savePlayerData(playerUUID);
+            releaseIfOffline(playerUUID);
+        } else if (ban) {
+            punishmentIndex.update(playerUUID, 0L, punishmentIndex.getMuteUntil(playerUUID));
+        } else {
+            punishmentIndex.update(playerUUID, punishmentIndex.getBanUntil(playerUUID), 0L);
+        }
+
+        getServer().getPluginManager().callEvent(new PunishmentExpireEvent(playerUUID, playerName, type, deadline));
+
+        if (ban) {
+            if (playerName != null) {
+                Bukkit.getBanList(org.bukkit.BanList.Type.NAME).pardon(playerName);
+                messages.broadcast("utility.helper", Message.BAN_EXPIRED, playerName);
+            }
+        } else {
+            Player player = Bukkit.getPlayer(playerUUID);
+            if (player != null) {
+                messages.send(player, Message.MUTE_EXPIRED);
+            }
+        }
     }
 
-    // Hashes a password using SHA-256 for secure storage
-    private String hashPassword(String password) {
+    // Runs password work on the verification pool and hands the result to the main thread.
+    // Returns false when the pool is saturated so the caller can ask the player to retry.
+    private <T> boolean submitPasswordTask(Player player, Callable<T> task, Consumer<T> onMainThread) {
+        UUID playerUUID = player.getUniqueId();
+        if (!pendingPasswordChecks.add(playerUUID)) {
+            return false;
+        }
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hash = md.digest(password.getBytes());
-            return Base64.getEncoder().encodeToString(hash);
-        } catch (NoSuchAlgorithmException e) {
-            getLogger().severe("SHA-256 algorithm not found.");
-            return null;
+            passwordExecutor.execute(() -> {
+                T result;
+                long start = System.nanoTime();
+                try {
+                    result = task.call();
+                } catch (Exception e) {
+                    getLogger().log(Level.SEVERE, "Password processing failed for " + player.getName(), e);
+                    result = null;
+                } finally {
+                    hashTimer.recordSince(start);
+                }
+                T finalResult = result;
+                if (!isEnabled()) {
+                    return;
+                }
+                Bukkit.getScheduler().runTask(this, () -> {
+                    pendingPasswordChecks.remove(playerUUID);
+                    if (player.isOnline()) {
+                        onMainThread.accept(finalResult);
+                    }
+                });
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pendingPasswordChecks.remove(playerUUID);
+            return false;
         }
     }
 
+    // Replaces an outdated hash once a login has proven the password; runs in the background
+    private void rehashPassword(UUID playerUUID, String password, String oldHash) {
+        try {
+            passwordExecutor.execute(() -> {
+                String newHash;
+                long start = System.nanoTime();
+                try {
+                    newHash = passwordHasher.hash(password);
+                } catch (GeneralSecurityException e) {
+                    getLogger().log(Level.SEVERE, "Could not rehash the password of " + playerUUID, e);
+                    return;
+                } finally {
+                    hashTimer.recordSince(start);
+                }
+                if (!isEnabled()) {
+                    return;
+                }
+                Bukkit.getScheduler().runTask(this, () -> {
+                    PlayerData data = playerDataMap.get(playerUUID);
+                    if (data != null && oldHash.equals(data.getPasswordHash())) {
+                        data.setPasswordHash(newHash);
+                        savePlayerData(playerUUID);
+                    }
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            // The pool is busy with logins; the hash is upgraded on a later login instead
+        }
+    }
+
+    // Applies the per-player and per-IP attempt limits before any password work is queued
+    private boolean allowPasswordAttempt(Player player) {
+        if (!attemptsPerPlayer.tryAcquire(player.getUniqueId())) {
+            return false;
+        }
+        InetSocketAddress address = player.getAddress();
+        return address == null || attemptsPerIp.tryAcquire(address.getAddress());
+    }
+
+    // Counters for monitoring the attempt and join limits
+    public Map<String, Long> getRateLimitStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("attempts_player_allowed", attemptsPerPlayer.getAllowed());
+        stats.put("attempts_player_rejected", attemptsPerPlayer.getRejected());
+        stats.put("attempts_ip_allowed", attemptsPerIp.getAllowed());
+        stats.put("attempts_ip_rejected", attemptsPerIp.getRejected());
+        stats.put("joins_ip_allowed", joinsPerIp.getAllowed());
+        stats.put("joins_ip_rejected", joinsPerIp.getRejected());
+        stats.put("join_breaker_trips", joinBreaker.getTrips());
+        stats.put("join_breaker_shed", joinBreaker.getShed());
+        stats.put("join_breaker_open", joinBreaker.isOpen() ? 1L : 0L);
+        return stats;
+    }
+
+    // Joins command arguments from 'from' onwards, as typed reasons are
+    private static String joinArgs(String[] args, int from) {
+        return from >= args.length ? "" : String.join(" ", Arrays.copyOfRange(args, from, args.length));
+    }
+
+    // The message prefix with legacy color codes
     public String getPrefix() {
-        return prefix;
+        return messages.getLegacyPrefix();
     }
     
     public boolean isLoggedIn(UUID playerUUID) {
-        return playerDataMap.containsKey(playerUUID) && playerDataMap.get(playerUUID).isLoggedIn();
+        PlayerSession session = sessions.get(playerUUID);
+        return session != null && session.isLoggedIn();
     }
     
     public void setLoggedIn(UUID playerUUID) {
-        if (playerDataMap.containsKey(playerUUID)) {
-            playerDataMap.get(playerUUID).setLoggedIn(true);
+        PlayerSession session = sessions.get(playerUUID);
+        if (session != null) {
+            session.setLoggedIn(true);
+        }
+        Player player = Bukkit.getPlayer(playerUUID);
+        if (player != null) {
+            authLockdown.unlock(player.getEntityId());
         }
     }
     
     // Checks if a player is currently muted
     private boolean isMuted(UUID playerUUID) {
-        if (playerDataMap.containsKey(playerUUID)) {
-            PlayerData data = playerDataMap.get(playerUUID);
-            if (data.getMutes() > 0) {
-                if (data.getMutes() == -1) {
-                    return true;
-                }
-                long muteDuration = TimeUnit.SECONDS.toMillis(data.getMutes());
-                long timePassed = System.currentTimeMillis() - data.getStartMutes();
-                return timePassed < muteDuration;
-            }
-        }
-        return false;
+        return punishmentIndex.isMuted(playerUUID, System.currentTimeMillis());
     }
     
     // Checks if a player is currently banned
     private boolean isBanned(UUID playerUUID) {
-        if (playerDataMap.containsKey(playerUUID)) {
-            PlayerData data = playerDataMap.get(playerUUID);
-            if (data.getBans() > 0) {
-                if (data.getBans() == -1) {
-                    return true;
-                }
-                long banDuration = TimeUnit.MINUTES.toMillis(data.getBans());
-                long timePassed = System.currentTimeMillis() - data.getStartBans();
-                return timePassed < banDuration;
+        return punishmentIndex.isBanned(playerUUID, System.currentTimeMillis());
+    }
+
+    // Builds the disconnect message shown to a player on a banned address
+    private Component getAddressBanMessage(AddressBans.Ban ban) {
+        if (ban.until == PunishmentIndex.PERMANENT) {
+            return messages.render(Message.IPBAN_SCREEN_PERMANENT, ban.reason);
+        }
+        long minutes = Math.max(1L, TimeUnit.MILLISECONDS.toMinutes(ban.until - System.currentTimeMillis() + 59_999L));
+        return messages.render(Message.IPBAN_SCREEN_TEMPORARY, minutes, ban.reason);
+    }
+
+    // Bans an address or range (until may be PERMANENT), kicks the players on it and saves the ban list
+    private void banAddress(String actor, AddressBans.Range range, long until, String reason) {
+        long now = System.currentTimeMillis();
+        AddressBans.Ban ban = new AddressBans.Ban(range.toString(), until, now, actor, reason);
+        addressBans.add(range, ban);
+        if (until != PunishmentIndex.PERMANENT) {
+            addressBanExpiry.schedule(ban.range, until);
+        }
+        kickAddressBanned(now);
+        Bukkit.getScheduler().runTaskAsynchronously(this, this::saveAddressBans);
+        getLogger().info(actor + " banned " + ban.range + (until == PunishmentIndex.PERMANENT ? "" : " until " + new Date(until)) + ": " + reason);
+    }
+
+    // Kicks online players whose address is now banned
+    private void kickAddressBanned(long now) {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            InetSocketAddress address = player.getAddress();
+            AddressBans.Ban ban = address == null || address.getAddress() == null ? null : addressBans.match(address.getAddress(), now);
+            if (ban != null) {
+                player.kick(getAddressBanMessage(ban));
             }
         }
-        return false;
+    }
+
+    // Builds the disconnect message shown to a banned player
+    private Component getBanMessage(UUID playerUUID) {
+        long banUntil = punishmentIndex.getBanUntil(playerUUID);
+        if (banUntil == PunishmentIndex.PERMANENT) {
+            return messages.render(Message.BAN_SCREEN_PERMANENT);
+        }
+        long timeRemaining = Math.max(1, TimeUnit.MILLISECONDS.toMinutes(banUntil - System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1) - 1));
+        return messages.render(Message.BAN_SCREEN_TEMPORARY, timeRemaining);
     }
     
 
-    // Player Data Class to store all relevant information
-    private static class PlayerData {
-        private String username;
-        private String passwordHash;
-        private long warns;
-        private long startWarns;
-        private long mutes;
-        private long startMutes;
-        private long bans;
-        private long startBans;
-        private long loginAttempts;
-        private boolean loggedIn;
-
-        public PlayerData(String username, String passwordHash, long warns, long startWarns, long mutes, long startMutes, long bans, long startBans, long loginAttempts) {
-            this.username = username;
-            this.passwordHash = passwordHash;
-            this.warns = warns;
-            this.startWarns = startWarns;
-            this.mutes = mutes;
-            this.startMutes = startMutes;
-            this.bans = bans;
-            this.startBans = startBans;
-            this.loginAttempts = loginAttempts;
-            this.loggedIn = false;
-        }
-
-        // Getters and setters for all data fields
-        public String getUsername() { return username; }
-        public String getPasswordHash() { return passwordHash; }
-        public long getWarns() { return warns; }
-        public long getStartWarns() { return startWarns; }
-        public long getMutes() { return mutes; }
-        public long getStartMutes() { return startMutes; }
-        public long getBans() { return bans; }
-        public long getStartBans() { return startBans; }
-        public long getLoginAttempts() { return loginAttempts; }
-        public boolean isLoggedIn() { return loggedIn; }
-
-        public void setUsername(String username) { this.username = username; }
-        public void setPasswordHash(String passwordHash) { this.passwordHash = passwordHash; }
-        public void setWarns(long warns) { this.warns = warns; }
-        public void setStartWarns(long startWarns) { this.startWarns = startWarns; }
-        public void setMutes(long mutes) { this.mutes = mutes; }
-        public void setStartMutes(long startMutes) { this.startMutes = startMutes; }
-        public void setBans(long bans) { this.bans = bans; }
-        public void setStartBans(long startBans) { this.startBans = startBans; }
-        public void setLoginAttempts(long loginAttempts) { this.loginAttempts = loginAttempts; }
-        public void setLoggedIn(boolean loggedIn) { this.loggedIn = loggedIn; }
+    // --- Event Handlers ---
+
+    @EventHandler(priority = EventPriority.LOW)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        UUID playerUUID = event.getUniqueId();
+
+        // Refuse join floods before touching any player data
+        if (!joinsPerIp.tryAcquire(event.getAddress())) {
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, messages.render(Message.JOIN_TOO_OFTEN));
+            return;
+        }
+        if (!joinBreaker.admit(nameIndex.getName(playerUUID) != null)) {
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, messages.render(Message.JOIN_NEW_ACCOUNTS_PAUSED));
+            return;
+        }
+        
+        // Deny banned players before the server creates them
+        if (isBanned(playerUUID)) {
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, getBanMessage(playerUUID));
+            return;
+        }
+
+        // Deny banned addresses and ranges
+        AddressBans.Ban addressBan = addressBans.match(event.getAddress(), System.currentTimeMillis());
+        if (addressBan != null) {
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, getAddressBanMessage(addressBan));
+            return;
+        }
+
+        // Catch other accounts of banned players by the addresses they joined from
+        if (!bannedAltAction.equals("none")) {
+            UUID bannedAlt = ipHistory.findAccount(event.getAddress(), playerUUID, this::isBanned);
+            if (bannedAlt != null) {
+                String altName = nameIndex.getName(bannedAlt) != null ? nameIndex.getName(bannedAlt) : bannedAlt.toString();
+                if (bannedAltAction.equals("deny")) {
+                    getLogger().info("Refused " + event.getName() + ": shares an address with the banned account " + altName + ".");
+                    event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, messages.render(Message.ALTS_DENIED_SCREEN, altName));
+                    return;
+                }
+                String playerName = event.getName();
+                Bukkit.getScheduler().runTask(this, () -> messages.broadcast("utility.helper", Message.ALTS_FLAGGED, playerName, altName));
+            }
+        }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLoginAllowed(AsyncPlayerPreLoginEvent event) {
+        // Warm the player's data off the main thread so the join handler finds it in memory; only once every
+        // other plugin has had its say, so a login refused after our checks leaves nothing behind
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        UUID playerUUID = event.getUniqueId();
+        if (!playerDataMap.containsKey(playerUUID)) {
+            loadPlayerData(playerUUID);
+        }
+    }
 
-    // --- Event Handlers ---
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        // Drop preloaded data if another check refused the login
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            playerDataMap.remove(event.getPlayer().getUniqueId());
+        }
+    }
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         UUID playerUUID = player.getUniqueId();
         
-        // Load data for the joining player
-        loadPlayerData(playerUUID);
+        // Data is normally preloaded during pre-login; load it here only if that was skipped
+        if (!playerDataMap.containsKey(playerUUID)) {
+            loadPlayerData(playerUUID);
+        }
 
-        // Check if the player is banned
+        // A ban issued between pre-login and join still applies
         if (isBanned(playerUUID)) {
-            PlayerData data = playerDataMap.get(playerUUID);
-            long banDuration = data.getBans();
-            String reason = "You are currently banned from the server.";
-            
-            if (banDuration > 0) {
-                long timeRemaining = banDuration - TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - data.getStartBans());
-                reason += ChatColor.RED + " Your ban expires in " + timeRemaining + " minutes.";
-            } else {
-                reason += ChatColor.RED + " This is a permanent ban.";
-            }
-            player.kickPlayer(getPrefix() + reason);
+            player.kick(getBanMessage(playerUUID));
             return;
         }
 
+        InetSocketAddress address = player.getAddress();
+        if (address != null && address.getAddress() != null) {
+            ipHistory.record(playerUUID, address.getAddress(), System.currentTimeMillis());
+        }
+
+        sessions.put(playerUUID, new PlayerSession(punishmentIndex.getMuteUntil(playerUUID),
+                spamDetector == null ? null : spamDetector.newHistory()));
+        authLockdown.lock(player.getEntityId());
+
+        // Keep the name index and the stored username current
+        nameIndex.record(playerUUID, player.getName());
+        PlayerData joinedData = playerDataMap.get(playerUUID);
+        if (joinedData != null && !player.getName().equals(joinedData.getUsername())) {
+            joinedData.setUsername(player.getName());
+            savePlayerData(playerUUID);
+        }
+
         // Check if the player is registered
         if (!playerDataMap.containsKey(playerUUID) || playerDataMap.get(playerUUID).getPasswordHash() == null) {
-            player.sendMessage(getPrefix() + ChatColor.YELLOW + "Welcome! You are not registered. Please use " + ChatColor.AQUA + "/register <password> <confirm_password>" + ChatColor.YELLOW + " to create an account.");
-            player.sendMessage(getPrefix() + ChatColor.YELLOW + "Please register within 5 minutes or you will be kicked.");
-            
-            // Set up a scheduled task to kick the player if they don't register
-            BukkitTask loginTask = Bukkit.getScheduler().runTaskLater(this, () -> {
-                if (!isLoggedIn(playerUUID)) {
-                    player.kickPlayer(ChatColor.RED + "You were kicked for not registering within the time limit.");
-                }
-            }, 20L * 60 * 5); // 5 minutes in ticks (20 ticks = 1 second)
-            loginTasks.put(playerUUID, loginTask);
+            messages.send(player, Message.JOIN_REGISTER_PROMPT);
+            messages.send(player, Message.JOIN_REGISTER_DEADLINE, formatLoginTimeout());
         } else {
             // Player is registered but not logged in
-            setLoggedIn(playerUUID);
-            
-            player.sendMessage(getPrefix() + ChatColor.YELLOW + "Welcome back! Please log in using " + ChatColor.AQUA + "/login <password>" + ChatColor.YELLOW + " to continue.");
+            messages.send(player, Message.JOIN_LOGIN_PROMPT);
             
             // Store player's location to teleport them back after login
             if (player.getBedSpawnLocation() != null) {
@@ -344,15 +1492,19 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
                 playerLocations.put(playerUUID, player.getLocation());
             }
             player.teleport(getLoginSpawnLocation());
-            
-            // Set up a scheduled task to kick the player if they don't log in
-            BukkitTask loginTask = Bukkit.getScheduler().runTaskLater(this, () -> {
-                if (!isLoggedIn(playerUUID)) {
-                    player.kickPlayer(ChatColor.RED + "You were kicked for not logging in within the time limit.");
-                }
-            }, 20L * 60 * 5); // 5 minutes in ticks
-            loginTasks.put(playerUUID, loginTask);
         }
+
+        // Kick the player if they don't log in or register in time
+        loginTimeouts.schedule(playerUUID, System.currentTimeMillis() + loginTimeoutMillis);
+    }
+
+    // Describes the login timeout for join messages
+    private String formatLoginTimeout() {
+        long seconds = TimeUnit.MILLISECONDS.toSeconds(loginTimeoutMillis);
+        if (seconds % 60 == 0) {
+            return seconds / 60 + (seconds == 60 ? " minute" : " minutes");
+        }
+        return seconds + (seconds == 1 ? " second" : " seconds");
     }
 
     @EventHandler
@@ -364,24 +1516,145 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         
         // Remove from maps
         playerDataMap.remove(playerUUID);
-        loginTasks.remove(playerUUID);
+        sessions.remove(playerUUID);
+        authLockdown.unlock(event.getPlayer().getEntityId());
+        loginTimeouts.cancel(playerUUID);
         playerLocations.remove(playerUUID);
     }
+
+    // Players who have not logged in may look around but not move; the position is reset and the
+    // new view direction kept
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        if (!authLockdown.isLocked(event.getPlayer().getEntityId()) || !event.hasChangedPosition()) {
+            return;
+        }
+        Location to = event.getTo();
+        Location back = event.getFrom();
+        back.setYaw(to.getYaw());
+        back.setPitch(to.getPitch());
+        event.setTo(back);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerInteract(PlayerInteractEvent event) {
+        if (authLockdown.isLocked(event.getPlayer().getEntityId())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerInteractEntity(PlayerInteractEntityEvent event) {
+        if (authLockdown.isLocked(event.getPlayer().getEntityId())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onBlockBreak(BlockBreakEvent event) {
+        if (authLockdown.isLocked(event.getPlayer().getEntityId())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        if (authLockdown.isLocked(event.getPlayer().getEntityId())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onInventoryOpen(InventoryOpenEvent event) {
+        if (authLockdown.isLocked(event.getPlayer().getEntityId())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerDropItem(PlayerDropItemEvent event) {
+        if (authLockdown.isLocked(event.getPlayer().getEntityId())) {
+            event.setCancelled(true);
+        }
+    }
+
+    // Only /login and /register may be run before logging in, with or without the plugin's namespace
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
+        Player player = event.getPlayer();
+        if (!authLockdown.isLocked(player.getEntityId())) {
+            return;
+        }
+        String message = event.getMessage();
+        int end = message.indexOf(' ');
+        String command = message.substring(1, end < 0 ? message.length() : end);
+        command = command.substring(command.indexOf(':') + 1);
+        if (!command.equalsIgnoreCase("login") && !command.equalsIgnoreCase("register")) {
+            event.setCancelled(true);
+            messages.send(player, Message.LOGIN_REQUIRED);
+        }
+    }
     
-    @EventHandler
-    public void onPlayerChat(AsyncPlayerChatEvent event) {
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerChat(AsyncChatEvent event) {
         Player player = event.getPlayer();
-        UUID playerUUID = player.getUniqueId();
         
-        // Prevent chat if the player is not logged in or is muted
-        if (!isLoggedIn(playerUUID)) {
+        // Prevent chat if the player is not logged in or is muted; runs on chat threads,
+        // so only the session's published gate is read
+        PlayerSession session = sessions.get(player.getUniqueId());
+        Message blocked = PlayerSession.checkChat(session);
+        if (blocked != null) {
             event.setCancelled(true);
-            player.sendMessage(getPrefix() + ChatColor.RED + "You must be logged in to chat.");
+            messages.send(player, blocked);
+            return;
+        }
+
+        ChatFilter filter = chatFilter;
+        SpamDetector.History history = session.getChatHistory();
+        if (filter == null && history == null) {
+            return;
         }
-        
-        if (isMuted(playerUUID)) {
-            event.setCancelled(true);
-            player.sendMessage(getPrefix() + ChatColor.RED + "You are currently muted and cannot chat.");
+        String text = PlainTextComponentSerializer.plainText().serialize(event.message());
+        if (history != null) {
+            long now = System.currentTimeMillis();
+            Message refused = spamDetector.check(history, text, now);
+            if (refused != null) {
+                event.setCancelled(true);
+                messages.send(player, refused);
+                (refused == Message.CHAT_SPAM_FLOOD ? spamFloods : spamRepeats).increment();
+                if (spamDetector.strike(history, now)) {
+                    UUID playerUUID = player.getUniqueId();
+                    String playerName = player.getName();
+                    Bukkit.getScheduler().runTask(this, () -> muteForSpam(playerUUID, playerName));
+                }
+                return;
+            }
+        }
+
+        if (filter == null) {
+            return;
+        }
+        String censored = filter.censor(text);
+        if (censored == null) {
+            return;
+        }
+        chatFilterMatches.increment();
+        String action = chatFilterAction;
+        if (action.equals("censor")) {
+            event.message(Component.text(censored));
+            return;
+        }
+        event.setCancelled(true);
+        messages.send(player, Message.CHAT_FILTER_BLOCKED);
+        if (action.equals("warn")) {
+            // Warnings change the player's record, which belongs to the main thread
+            UUID playerUUID = player.getUniqueId();
+            String playerName = player.getName();
+            Bukkit.getScheduler().runTask(this, () -> {
+                messages.broadcast("utility.helper", Message.CHAT_FILTER_WARNED, playerName, censored);
+                issueWarning(getName(), null, playerUUID, playerName,
+                        getConfig().getString("chat-filter.warn-reason", "Inappropriate language"));
+            });
         }
     }
 
@@ -393,7 +1666,7 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (!(sender instanceof Player)) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Only players can use this command.");
+                messages.send(sender, Message.PLAYER_ONLY);
                 return true;
             }
 
@@ -401,36 +1674,70 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
             UUID playerUUID = player.getUniqueId();
 
             if (isLoggedIn(playerUUID)) {
-                player.sendMessage(getPrefix() + ChatColor.GREEN + "You are already logged in!");
+                messages.send(player, Message.LOGIN_ALREADY_LOGGED_IN);
                 return true;
             }
 
             if (args.length != 1) {
-                player.sendMessage(getPrefix() + ChatColor.RED + "Usage: /login <password>");
+                messages.send(player, Message.USAGE, "/login <password>");
                 return false;
             }
 
             PlayerData data = playerDataMap.get(playerUUID);
             if (data == null) {
-                player.sendMessage(getPrefix() + ChatColor.RED + "You are not registered. Please use /register to create an account.");
+                messages.send(player, Message.LOGIN_NOT_REGISTERED);
+                return true;
+            }
+
+            if (pendingPasswordChecks.contains(playerUUID)) {
+                messages.send(player, Message.PASSWORD_PENDING);
+                return true;
+            }
+
+            if (!allowPasswordAttempt(player)) {
+                messages.send(player, Message.PASSWORD_RATE_LIMITED);
                 return true;
             }
 
             String enteredPassword = args[0];
-            String enteredPasswordHash = hashPassword(enteredPassword);
+            String storedHash = data.getPasswordHash();
+
+            // Verify off the main thread; the outcome is applied back on it
+            boolean submitted = submitPasswordTask(player, () -> passwordHasher.verify(enteredPassword, storedHash),
+                    result -> completeLogin(player, enteredPassword, storedHash, result));
+            if (!submitted) {
+                messages.send(player, Message.PASSWORD_BUSY);
+            }
+            return true;
+        }
+
+        // Applies a finished password check (main thread)
+        private void completeLogin(Player player, String enteredPassword, String storedHash, PasswordHasher.Result result) {
+            UUID playerUUID = player.getUniqueId();
+            PlayerData data = playerDataMap.get(playerUUID);
+            if (data == null || isLoggedIn(playerUUID)) {
+                return;
+            }
+            if (result == null) {
+                messages.send(player, Message.PASSWORD_ERROR);
+                return;
+            }
 
-            if (enteredPasswordHash != null && enteredPasswordHash.equals(data.getPasswordHash())) {
+            if (result.matches) {
+                loginSuccesses.increment();
                 setLoggedIn(playerUUID);
                 data.setLoginAttempts(0);
                 savePlayerData(playerUUID);
-                player.sendMessage(getPrefix() + ChatColor.GREEN + "You have successfully logged in!");
+                messages.send(player, Message.LOGIN_SUCCESS);
 
-                // Cancel the scheduled kick task
-                if (loginTasks.containsKey(playerUUID)) {
-                    loginTasks.get(playerUUID).cancel();
-                    loginTasks.remove(playerUUID);
+                // Move old SHA-256 hashes and outdated iteration counts to the current settings
+                if (result.needsRehash) {
+                    rehashPassword(playerUUID, enteredPassword, storedHash);
                 }
 
+                // Cancel the login deadline
+                loginTimeouts.cancel(playerUUID);
+
                 // Teleport back to original location
                 if (playerLocations.containsKey(playerUUID)) {
                     Location originalLocation = playerLocations.get(playerUUID);
@@ -439,13 +1746,14 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
                 }
 
             } else {
+                loginFailures.increment();
                 data.setLoginAttempts(data.getLoginAttempts() + 1);
                 savePlayerData(playerUUID);
                 
                 int attempts = (int) data.getLoginAttempts();
                 if (attempts >= 5) {
-                    // Kick player and apply bans for repeated failed attempts
-                    player.kickPlayer(ChatColor.RED + "Too many failed login attempts. Please try again later.");
+                    // Apply bans for repeated failed attempts, then kick the player. The ban is saved first:
+                    // the kick runs the quit handler at once, which saves and unloads the record.
                     if (attempts == 5) {
                         data.setBans(5);
                         data.setStartBans(System.currentTimeMillis());
@@ -457,10 +1765,13 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
                         data.setStartBans(System.currentTimeMillis());
                     }
                     savePlayerData(playerUUID);
+                    recordAction(getName(), playerUUID, data.getBans() == -1 ? ModerationJournal.Action.BAN : ModerationJournal.Action.TEMPBAN,
+                            data.getBans(), "Too many failed login attempts");
+                    player.kick(messages.render(Message.LOGIN_TOO_MANY_FAILURES));
+                    return;
                 }
-                player.sendMessage(getPrefix() + ChatColor.RED + "Incorrect password. Attempt " + attempts + " of 5.");
+                messages.send(player, Message.LOGIN_WRONG_PASSWORD, attempts, 5);
             }
-            return true;
         }
     }
 
@@ -469,7 +1780,7 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (!(sender instanceof Player)) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Only players can use this command.");
+                messages.send(sender, Message.PLAYER_ONLY);
                 return true;
             }
     
@@ -477,12 +1788,12 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
             UUID playerUUID = player.getUniqueId();
     
             if (playerDataMap.containsKey(playerUUID) && playerDataMap.get(playerUUID).getPasswordHash() != null) {
-                player.sendMessage(getPrefix() + ChatColor.RED + "You are already registered!");
+                messages.send(player, Message.REGISTER_ALREADY_REGISTERED);
                 return true;
             }
     
             if (args.length < 2) {
-                player.sendMessage(getPrefix() + ChatColor.RED + "Usage: /register <password> <confirm_password>");
+                messages.send(player, Message.USAGE, "/register <password> <confirm_password>");
                 return false;
             }
     
@@ -490,28 +1801,50 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
             String confirmPassword = args[1];
     
             if (!password.equals(confirmPassword)) {
-                player.sendMessage(getPrefix() + ChatColor.RED + "Passwords do not match. Please try again.");
+                messages.send(player, Message.REGISTER_PASSWORDS_DIFFER);
                 return true;
             }
     
-            String hashedPassword = hashPassword(password);
-            if (hashedPassword == null) {
-                player.sendMessage(getPrefix() + ChatColor.RED + "There was an error processing your password. Please try again.");
+            if (pendingPasswordChecks.contains(playerUUID)) {
+                messages.send(player, Message.PASSWORD_PENDING);
+                return true;
+            }
+    
+            if (!allowPasswordAttempt(player)) {
+                messages.send(player, Message.PASSWORD_RATE_LIMITED);
                 return true;
             }
     
+            // Hash off the main thread; the account is created back on it
+            boolean submitted = submitPasswordTask(player, () -> passwordHasher.hash(password),
+                    hashedPassword -> completeRegistration(player, hashedPassword));
+            if (!submitted) {
+                messages.send(player, Message.PASSWORD_BUSY);
+            }
+            return true;
+        }
+
+        // Creates the account once the password is hashed (main thread)
+        private void completeRegistration(Player player, String hashedPassword) {
+            UUID playerUUID = player.getUniqueId();
+            if (playerDataMap.containsKey(playerUUID) && playerDataMap.get(playerUUID).getPasswordHash() != null) {
+                return;
+            }
+            if (hashedPassword == null) {
+                messages.send(player, Message.PASSWORD_ERROR);
+                return;
+            }
+    
             PlayerData newData = new PlayerData(player.getName(), hashedPassword, 0, 0, 0, 0, 0, 0, 0);
             playerDataMap.put(playerUUID, newData);
             savePlayerData(playerUUID);
             setLoggedIn(playerUUID);
+            registrations.increment();
     
-            player.sendMessage(getPrefix() + ChatColor.GREEN + "Account created and logged in successfully!");
+            messages.send(player, Message.REGISTER_SUCCESS);
             
-            // Cancel the scheduled kick task
-            if (loginTasks.containsKey(playerUUID)) {
-                loginTasks.get(playerUUID).cancel();
-                loginTasks.remove(playerUUID);
-            }
+            // Cancel the login deadline
+            loginTimeouts.cancel(playerUUID);
     
             // Teleport back to original location
             if (playerLocations.containsKey(playerUUID)) {
@@ -519,7 +1852,6 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
                 player.teleport(originalLocation);
                 playerLocations.remove(playerUUID);
             }
-            return true;
         }
     }
 
@@ -528,22 +1860,19 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (args.length < 2) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Usage: /ban <player> <reason>");
+                messages.send(sender, Message.USAGE, "/ban <player> <reason>");
                 return false;
             }
 
-            Player target = Bukkit.getPlayerExact(args[0]);
-            if (target == null) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Player not found.");
+            UUID targetUUID = resolveTarget(args[0]);
+            if (targetUUID == null) {
+                messages.send(sender, Message.PLAYER_NOT_FOUND);
                 return true;
             }
 
-            UUID targetUUID = target.getUniqueId();
-            PlayerData targetData = playerDataMap.get(targetUUID);
-            if (targetData == null) {
-                targetData = new PlayerData(target.getName(), null, 0, 0, 0, 0, 0, 0, 0);
-                playerDataMap.put(targetUUID, targetData);
-            }
+            Player target = Bukkit.getPlayer(targetUUID);
+            String targetName = getTargetName(targetUUID, args[0]);
+            PlayerData targetData = getOrCreatePlayerData(targetUUID, targetName);
 
             StringBuilder reasonBuilder = new StringBuilder();
             for (int i = 1; i < args.length; i++) {
@@ -554,10 +1883,14 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
             targetData.setBans(-1);
             targetData.setStartBans(System.currentTimeMillis());
             savePlayerData(targetUUID);
+            releaseIfOffline(targetUUID);
+            recordAction(sender.getName(), targetUUID, ModerationJournal.Action.BAN, -1, reason);
 
-            Bukkit.getBanList(org.bukkit.BanList.Type.NAME).addBan(target.getName(), reason, null, sender.getName());
-            target.kickPlayer(getPrefix() + ChatColor.RED + "You have been permanently banned from the server for: " + ChatColor.YELLOW + reason);
-            Bukkit.broadcastMessage(getPrefix() + ChatColor.RED + target.getName() + " has been permanently banned by " + sender.getName() + " for: " + ChatColor.YELLOW + reason);
+            Bukkit.getBanList(org.bukkit.BanList.Type.NAME).addBan(targetName, reason, null, sender.getName());
+            if (target != null) {
+                target.kick(messages.render(Message.BAN_KICK, reason));
+            }
+            messages.broadcast(Message.BAN_BROADCAST, targetName, sender.getName(), reason);
             
             return true;
         }
@@ -568,29 +1901,31 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (args.length < 1) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Usage: /unban <player>");
+                messages.send(sender, Message.USAGE, "/unban <player>");
                 return false;
             }
 
-            Player target = Bukkit.getPlayerExact(args[0]);
-            UUID targetUUID;
-            if (target == null) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Player not found.");
+            UUID targetUUID = resolveTarget(args[0]);
+            if (targetUUID == null) {
+                messages.send(sender, Message.PLAYER_NOT_FOUND);
                 return true;
             }
-            targetUUID = target.getUniqueId();
 
-            if (!playerDataMap.containsKey(targetUUID) || playerDataMap.get(targetUUID).getBans() == 0) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + args[0] + " is not currently banned by this plugin.");
+            String targetName = getTargetName(targetUUID, args[0]);
+            PlayerData targetData = getOrLoadPlayerData(targetUUID);
+            if (targetData == null || targetData.getBans() == 0) {
+                messages.send(sender, Message.UNBAN_NOT_BANNED, targetName);
                 return true;
             }
 
-            playerDataMap.get(targetUUID).setBans(0);
-            playerDataMap.get(targetUUID).setStartBans(0);
+            targetData.setBans(0);
+            targetData.setStartBans(0);
             savePlayerData(targetUUID);
+            releaseIfOffline(targetUUID);
+            recordAction(sender.getName(), targetUUID, ModerationJournal.Action.UNBAN, 0, joinArgs(args, 1));
 
-            Bukkit.getBanList(org.bukkit.BanList.Type.NAME).pardon(args[0]);
-            sender.sendMessage(getPrefix() + ChatColor.GREEN + args[0] + " has been unbanned.");
+            Bukkit.getBanList(org.bukkit.BanList.Type.NAME).pardon(targetName);
+            messages.send(sender, Message.UNBAN_SUCCESS, targetName);
             return true;
         }
     }
@@ -600,31 +1935,28 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (args.length < 3) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Usage: /tempban <player> <duration_minutes> <reason>");
+                messages.send(sender, Message.USAGE, "/tempban <player> <duration_minutes> <reason>");
                 return false;
             }
 
-            Player target = Bukkit.getPlayerExact(args[0]);
-            if (target == null) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Player not found.");
+            UUID targetUUID = resolveTarget(args[0]);
+            if (targetUUID == null) {
+                messages.send(sender, Message.PLAYER_NOT_FOUND);
                 return true;
             }
 
-            UUID targetUUID = target.getUniqueId();
-            PlayerData targetData = playerDataMap.get(targetUUID);
-            if (targetData == null) {
-                targetData = new PlayerData(target.getName(), null, 0, 0, 0, 0, 0, 0, 0);
-                playerDataMap.put(targetUUID, targetData);
-            }
-
             long duration;
             try {
                 duration = Long.parseLong(args[1]);
             } catch (NumberFormatException e) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Invalid duration. Please enter a number in minutes.");
+                messages.send(sender, Message.TEMPBAN_INVALID_DURATION);
                 return false;
             }
 
+            Player target = Bukkit.getPlayer(targetUUID);
+            String targetName = getTargetName(targetUUID, args[0]);
+            PlayerData targetData = getOrCreatePlayerData(targetUUID, targetName);
+
             StringBuilder reasonBuilder = new StringBuilder();
             for (int i = 2; i < args.length; i++) {
                 reasonBuilder.append(args[i]).append(" ");
@@ -634,10 +1966,14 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
             targetData.setBans(duration);
             targetData.setStartBans(System.currentTimeMillis());
             savePlayerData(targetUUID);
+            releaseIfOffline(targetUUID);
+            recordAction(sender.getName(), targetUUID, ModerationJournal.Action.TEMPBAN, duration, reason);
 
-            Bukkit.getBanList(org.bukkit.BanList.Type.NAME).addBan(target.getName(), reason, new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(duration)), sender.getName());
-            target.kickPlayer(getPrefix() + ChatColor.RED + "You have been temporarily banned from the server for " + duration + " minutes for: " + ChatColor.YELLOW + reason);
-            Bukkit.broadcastMessage(getPrefix() + ChatColor.RED + target.getName() + " has been temporarily banned by " + sender.getName() + " for: " + ChatColor.YELLOW + reason);
+            Bukkit.getBanList(org.bukkit.BanList.Type.NAME).addBan(targetName, reason, new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(duration)), sender.getName());
+            if (target != null) {
+                target.kick(messages.render(Message.TEMPBAN_KICK, duration, reason));
+            }
+            messages.broadcast(Message.TEMPBAN_BROADCAST, targetName, sender.getName(), reason);
             
             return true;
         }
@@ -648,13 +1984,13 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (args.length < 2) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Usage: /kick <player> <reason>");
+                messages.send(sender, Message.USAGE, "/kick <player> <reason>");
                 return false;
             }
 
             Player target = Bukkit.getPlayerExact(args[0]);
             if (target == null) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Player not found.");
+                messages.send(sender, Message.PLAYER_NOT_FOUND);
                 return true;
             }
 
@@ -664,8 +2000,9 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
             }
             String reason = reasonBuilder.toString().trim();
 
-            target.kickPlayer(getPrefix() + ChatColor.RED + "You have been kicked from the server for: " + ChatColor.YELLOW + reason);
-            Bukkit.broadcastMessage(getPrefix() + ChatColor.RED + target.getName() + " has been kicked by " + sender.getName() + " for: " + ChatColor.YELLOW + reason);
+            target.kick(messages.render(Message.KICK_KICK, reason));
+            recordAction(sender.getName(), target.getUniqueId(), ModerationJournal.Action.KICK, 0, reason);
+            messages.broadcast(Message.KICK_BROADCAST, target.getName(), sender.getName(), reason);
             
             return true;
         }
@@ -676,22 +2013,18 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (args.length < 2) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Usage: /mute <player> <reason>");
+                messages.send(sender, Message.USAGE, "/mute <player> <reason>");
                 return false;
             }
 
-            Player target = Bukkit.getPlayerExact(args[0]);
-            if (target == null) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Player not found.");
+            UUID targetUUID = resolveTarget(args[0]);
+            if (targetUUID == null) {
+                messages.send(sender, Message.PLAYER_NOT_FOUND);
                 return true;
             }
 
-            UUID targetUUID = target.getUniqueId();
-            PlayerData targetData = playerDataMap.get(targetUUID);
-            if (targetData == null) {
-                targetData = new PlayerData(target.getName(), null, 0, 0, 0, 0, 0, 0, 0);
-                playerDataMap.put(targetUUID, targetData);
-            }
+            Player target = Bukkit.getPlayer(targetUUID);
+            String targetName = getTargetName(targetUUID, args[0]);
 
             StringBuilder reasonBuilder = new StringBuilder();
             for (int i = 1; i < args.length; i++) {
@@ -700,17 +2033,22 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
             String reason = reasonBuilder.toString().trim();
 
             if (isMuted(targetUUID)) {
-                sender.sendMessage(getPrefix() + ChatColor.YELLOW + target.getName() + " is already muted.");
+                messages.send(sender, Message.MUTE_ALREADY_MUTED, targetName);
                 return true;
             }
 
+            PlayerData targetData = getOrCreatePlayerData(targetUUID, targetName);
             targetData.setMutes(-1); // Permanent mute
             targetData.setStartMutes(System.currentTimeMillis());
             savePlayerData(targetUUID);
+            releaseIfOffline(targetUUID);
+            recordAction(sender.getName(), targetUUID, ModerationJournal.Action.MUTE, -1, reason);
 
-            target.sendMessage(getPrefix() + ChatColor.RED + "You have been muted by " + sender.getName() + " for: " + ChatColor.YELLOW + reason);
-            sender.sendMessage(getPrefix() + ChatColor.GREEN + target.getName() + " has been permanently muted.");
-            Bukkit.broadcastMessage(getPrefix() + ChatColor.RED + target.getName() + " has been permanently muted by " + sender.getName() + " for: " + ChatColor.YELLOW + reason);
+            if (target != null) {
+                messages.send(target, Message.MUTE_NOTIFY, sender.getName(), reason);
+            }
+            messages.send(sender, Message.MUTE_SUCCESS, targetName);
+            messages.broadcast(Message.MUTE_BROADCAST, targetName, sender.getName(), reason);
             
             return true;
         }
@@ -721,29 +2059,35 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (args.length < 1) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Usage: /unmute <player>");
+                messages.send(sender, Message.USAGE, "/unmute <player>");
                 return false;
             }
 
-            Player target = Bukkit.getPlayerExact(args[0]);
-            if (target == null) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Player not found.");
+            UUID targetUUID = resolveTarget(args[0]);
+            if (targetUUID == null) {
+                messages.send(sender, Message.PLAYER_NOT_FOUND);
                 return true;
             }
 
-            UUID targetUUID = target.getUniqueId();
+            Player target = Bukkit.getPlayer(targetUUID);
+            String targetName = getTargetName(targetUUID, args[0]);
+            PlayerData targetData = getOrLoadPlayerData(targetUUID);
             
-            if (!playerDataMap.containsKey(targetUUID) || playerDataMap.get(targetUUID).getMutes() == 0) {
-                sender.sendMessage(getPrefix() + ChatColor.YELLOW + target.getName() + " is not currently muted.");
+            if (targetData == null || targetData.getMutes() == 0) {
+                messages.send(sender, Message.UNMUTE_NOT_MUTED, targetName);
                 return true;
             }
 
-            playerDataMap.get(targetUUID).setMutes(0);
-            playerDataMap.get(targetUUID).setStartMutes(0);
+            targetData.setMutes(0);
+            targetData.setStartMutes(0);
             savePlayerData(targetUUID);
+            releaseIfOffline(targetUUID);
+            recordAction(sender.getName(), targetUUID, ModerationJournal.Action.UNMUTE, 0, joinArgs(args, 1));
 
-            target.sendMessage(getPrefix() + ChatColor.GREEN + "You have been unmuted by " + sender.getName() + ".");
-            sender.sendMessage(getPrefix() + ChatColor.GREEN + target.getName() + " has been unmuted.");
+            if (target != null) {
+                messages.send(target, Message.UNMUTE_NOTIFY, sender.getName());
+            }
+            messages.send(sender, Message.UNMUTE_SUCCESS, targetName);
             
             return true;
         }
@@ -754,22 +2098,17 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (args.length < 2) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Usage: /warn <player> <reason>");
+                messages.send(sender, Message.USAGE, "/warn <player> <reason>");
                 return false;
             }
 
-            Player target = Bukkit.getPlayerExact(args[0]);
-            if (target == null) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Player not found.");
+            UUID targetUUID = resolveTarget(args[0]);
+            if (targetUUID == null) {
+                messages.send(sender, Message.PLAYER_NOT_FOUND);
                 return true;
             }
 
-            UUID targetUUID = target.getUniqueId();
-            PlayerData targetData = playerDataMap.get(targetUUID);
-            if (targetData == null) {
-                targetData = new PlayerData(target.getName(), null, 0, 0, 0, 0, 0, 0, 0);
-                playerDataMap.put(targetUUID, targetData);
-            }
+            String targetName = getTargetName(targetUUID, args[0]);
 
             StringBuilder reasonBuilder = new StringBuilder();
             for (int i = 1; i < args.length; i++) {
@@ -777,13 +2116,7 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
             }
             String reason = reasonBuilder.toString().trim();
 
-            targetData.setWarns(targetData.getWarns() + 1);
-            targetData.setStartWarns(System.currentTimeMillis());
-            savePlayerData(targetUUID);
-
-            target.sendMessage(getPrefix() + ChatColor.RED + "You have been warned by " + sender.getName() + " for: " + ChatColor.YELLOW + reason);
-            sender.sendMessage(getPrefix() + ChatColor.GREEN + target.getName() + " has been warned. They now have " + targetData.getWarns() + " warnings.");
-            
+            issueWarning(sender.getName(), sender, targetUUID, targetName, reason);
             return true;
         }
     }
@@ -793,29 +2126,35 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (args.length < 1) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Usage: /unwarn <player>");
+                messages.send(sender, Message.USAGE, "/unwarn <player>");
                 return false;
             }
 
-            Player target = Bukkit.getPlayerExact(args[0]);
-            if (target == null) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Player not found.");
+            UUID targetUUID = resolveTarget(args[0]);
+            if (targetUUID == null) {
+                messages.send(sender, Message.PLAYER_NOT_FOUND);
                 return true;
             }
 
-            UUID targetUUID = target.getUniqueId();
-            PlayerData targetData = playerDataMap.get(targetUUID);
+            Player target = Bukkit.getPlayer(targetUUID);
+            String targetName = getTargetName(targetUUID, args[0]);
+            PlayerData targetData = getOrLoadPlayerData(targetUUID);
 
             if (targetData == null || targetData.getWarns() == 0) {
-                sender.sendMessage(getPrefix() + ChatColor.YELLOW + target.getName() + " has no warnings to remove.");
+                messages.send(sender, Message.UNWARN_NONE, targetName);
                 return true;
             }
 
             targetData.setWarns(targetData.getWarns() - 1);
+            warningLedger.removeNewest(targetUUID);
             savePlayerData(targetUUID);
+            releaseIfOffline(targetUUID);
+            recordAction(sender.getName(), targetUUID, ModerationJournal.Action.UNWARN, 0, joinArgs(args, 1));
 
-            sender.sendMessage(getPrefix() + ChatColor.GREEN + "Warning removed from " + target.getName() + ". They now have " + targetData.getWarns() + " warnings.");
-            target.sendMessage(getPrefix() + ChatColor.GREEN + "A warning has been removed from your record.");
+            messages.send(sender, Message.UNWARN_SUCCESS, targetName, targetData.getWarns());
+            if (target != null) {
+                messages.send(target, Message.UNWARN_NOTIFY);
+            }
             
             return true;
         }
@@ -826,23 +2165,26 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (args.length < 1) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Usage: /checkwarn <player>");
+                messages.send(sender, Message.USAGE, "/checkwarn <player>");
                 return false;
             }
 
-            Player target = Bukkit.getPlayerExact(args[0]);
-            if (target == null) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Player not found.");
+            UUID targetUUID = resolveTarget(args[0]);
+            if (targetUUID == null) {
+                messages.send(sender, Message.PLAYER_NOT_FOUND);
                 return true;
             }
 
-            UUID targetUUID = target.getUniqueId();
-            PlayerData targetData = playerDataMap.get(targetUUID);
+            String targetName = getTargetName(targetUUID, args[0]);
+            PlayerData targetData = getOrLoadPlayerData(targetUUID);
+            releaseIfOffline(targetUUID);
 
             if (targetData == null) {
-                sender.sendMessage(getPrefix() + ChatColor.GREEN + target.getName() + " has no warnings.");
+                messages.send(sender, Message.CHECKWARN_NONE, targetName);
             } else {
-                sender.sendMessage(getPrefix() + ChatColor.GREEN + target.getName() + " has " + targetData.getWarns() + " warning(s).");
+                messages.send(sender, Message.CHECKWARN_RESULT, targetName, targetData.getWarns(),
+                        warningLedger.count(targetUUID, recentWarningsWindow, System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS.toDays(recentWarningMillis));
             }
             return true;
         }
@@ -853,21 +2195,21 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (args.length < 1) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Usage: /checkban <player>");
+                messages.send(sender, Message.USAGE, "/checkban <player>");
                 return false;
             }
 
-            Player target = Bukkit.getPlayerExact(args[0]);
-            if (target == null) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Player not found.");
+            UUID targetUUID = resolveTarget(args[0]);
+            if (targetUUID == null) {
+                messages.send(sender, Message.PLAYER_NOT_FOUND);
                 return true;
             }
 
-            UUID targetUUID = target.getUniqueId();
+            String targetName = getTargetName(targetUUID, args[0]);
             if (isBanned(targetUUID)) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + target.getName() + " is currently banned.");
+                messages.send(sender, Message.CHECKBAN_BANNED, targetName);
             } else {
-                sender.sendMessage(getPrefix() + ChatColor.GREEN + target.getName() + " is not currently banned.");
+                messages.send(sender, Message.CHECKBAN_NOT_BANNED, targetName);
             }
             return true;
         }
@@ -878,21 +2220,21 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (args.length < 1) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Usage: /checkmute <player>");
+                messages.send(sender, Message.USAGE, "/checkmute <player>");
                 return false;
             }
 
-            Player target = Bukkit.getPlayerExact(args[0]);
-            if (target == null) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Player not found.");
+            UUID targetUUID = resolveTarget(args[0]);
+            if (targetUUID == null) {
+                messages.send(sender, Message.PLAYER_NOT_FOUND);
                 return true;
             }
 
-            UUID targetUUID = target.getUniqueId();
+            String targetName = getTargetName(targetUUID, args[0]);
             if (isMuted(targetUUID)) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + target.getName() + " is currently muted.");
+                messages.send(sender, Message.CHECKMUTE_MUTED, targetName);
             } else {
-                sender.sendMessage(getPrefix() + ChatColor.GREEN + target.getName() + " is not currently muted.");
+                messages.send(sender, Message.CHECKMUTE_NOT_MUTED, targetName);
             }
             return true;
         }
@@ -903,16 +2245,556 @@ public final class UtilityPlugin extends JavaPlugin implements Listener {
         @Override
         public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
             if (!(sender instanceof Player)) {
-                sender.sendMessage(getPrefix() + ChatColor.RED + "Only players can use this command.");
+                messages.send(sender, Message.PLAYER_ONLY);
                 return true;
             }
             
             Player player = (Player) sender;
             getConfig().set("login_spawn", player.getLocation());
             saveConfig();
-            player.sendMessage(getPrefix() + ChatColor.GREEN + "Login spawn location has been set to your current location!");
+            messages.send(player, Message.SETLOGIN_SUCCESS);
+            return true;
+        }
+    }
+
+    // History command
+    private class HistoryCommandExecutor implements CommandExecutor {
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+            if (args.length < 1 || args.length > 2) {
+                messages.send(sender, Message.USAGE, "/history <player> [page]");
+                return false;
+            }
+
+            UUID targetUUID = resolveTarget(args[0]);
+            if (targetUUID == null) {
+                messages.send(sender, Message.PLAYER_NOT_FOUND);
+                return true;
+            }
+
+            int page = 1;
+            if (args.length == 2) {
+                try {
+                    page = Integer.parseInt(args[1]);
+                } catch (NumberFormatException e) {
+                    page = 0;
+                }
+            }
+
+            String targetName = getTargetName(targetUUID, args[0]);
+            int total = journal == null ? 0 : journal.count(targetUUID);
+            if (total == 0) {
+                messages.send(sender, Message.HISTORY_EMPTY, targetName);
+                return true;
+            }
+            int pages = (total + HISTORY_PAGE_SIZE - 1) / HISTORY_PAGE_SIZE;
+            if (page < 1 || page > pages) {
+                messages.send(sender, Message.HISTORY_NO_PAGE, pages);
+                return true;
+            }
+
+            // Read the page off the main thread and show it back on it
+            int shownPage = page;
+            Bukkit.getScheduler().runTaskAsynchronously(UtilityPlugin.this, () -> {
+                List<ModerationJournal.Entry> entries;
+                try {
+                    entries = journal.read(targetUUID, (shownPage - 1) * HISTORY_PAGE_SIZE, HISTORY_PAGE_SIZE);
+                } catch (IOException e) {
+                    getLogger().log(Level.SEVERE, "Could not read the moderation history of " + targetUUID, e);
+                    entries = null;
+                }
+                List<ModerationJournal.Entry> result = entries;
+                Bukkit.getScheduler().runTask(UtilityPlugin.this, () -> showHistory(sender, targetName, shownPage, pages, total, result));
+            });
+            return true;
+        }
+
+        private void showHistory(CommandSender sender, String targetName, int page, int pages, int total, List<ModerationJournal.Entry> entries) {
+            if (entries == null) {
+                messages.send(sender, Message.HISTORY_ERROR);
+                return;
+            }
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+            messages.send(sender, Message.HISTORY_HEADER, targetName, page, pages, total);
+            for (ModerationJournal.Entry entry : entries) {
+                String action = entry.action.name().toLowerCase();
+                if (entry.durationMinutes > 0) {
+                    action += " (" + entry.durationMinutes + " min)";
+                }
+                messages.send(sender, Message.HISTORY_ENTRY, dateFormat.format(new Date(entry.timestamp)), action,
+                        entry.actor, entry.reason.isEmpty() ? "-" : entry.reason);
+            }
+        }
+    }
+
+    // IP ban command: permanently bans an address, given directly or as an online player's
+    private class IpBanCommandExecutor implements CommandExecutor {
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+            if (args.length < 2) {
+                messages.send(sender, Message.USAGE, "/ipban <address|player> <reason>");
+                return false;
+            }
+
+            AddressBans.Range range = AddressBans.parse(args[0]);
+            if (range == null) {
+                Player target = Bukkit.getPlayerExact(args[0]);
+                InetSocketAddress address = target == null ? null : target.getAddress();
+                if (address == null || address.getAddress() == null) {
+                    messages.send(sender, Message.IPBAN_INVALID_ADDRESS, args[0]);
+                    return true;
+                }
+                range = AddressBans.of(address.getAddress());
+            } else if (range.prefixLength != range.address.length * 8) {
+                messages.send(sender, Message.USAGE, "/rangeban <range> <duration_minutes> <reason>");
+                return true;
+            }
+
+            String reason = joinArgs(args, 1);
+            banAddress(sender.getName(), range, PunishmentIndex.PERMANENT, reason);
+            messages.broadcast("utility.helper", Message.IPBAN_BROADCAST, range.toString(), sender.getName(), reason);
+            return true;
+        }
+    }
+
+    // Range ban command: bans a CIDR range, permanently when the duration is 0
+    private class RangeBanCommandExecutor implements CommandExecutor {
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+            if (args.length < 3) {
+                messages.send(sender, Message.USAGE, "/rangeban <range> <duration_minutes> <reason>");
+                return false;
+            }
+
+            AddressBans.Range range = AddressBans.parse(args[0]);
+            if (range == null) {
+                messages.send(sender, Message.IPBAN_INVALID_ADDRESS, args[0]);
+                return true;
+            }
+
+            long duration;
+            try {
+                duration = Long.parseLong(args[1]);
+            } catch (NumberFormatException e) {
+                duration = -1L;
+            }
+            if (duration < 0) {
+                messages.send(sender, Message.TEMPBAN_INVALID_DURATION);
+                return false;
+            }
+
+            String reason = joinArgs(args, 2);
+            long until = duration == 0 ? PunishmentIndex.PERMANENT : System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(duration);
+            banAddress(sender.getName(), range, until, reason);
+            messages.broadcast("utility.helper", Message.IPBAN_BROADCAST, range.toString(), sender.getName(), reason);
+            return true;
+        }
+    }
+
+    // Lifts the ban of an address or range
+    private class UnIpBanCommandExecutor implements CommandExecutor {
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+            if (args.length != 1) {
+                messages.send(sender, Message.USAGE, "/unipban <address|range>");
+                return false;
+            }
+
+            AddressBans.Range range = AddressBans.parse(args[0]);
+            if (range == null) {
+                messages.send(sender, Message.IPBAN_INVALID_ADDRESS, args[0]);
+                return true;
+            }
+            AddressBans.Ban removed = addressBans.remove(range);
+            if (removed == null) {
+                messages.send(sender, Message.UNIPBAN_NOT_BANNED, range.toString());
+                return true;
+            }
+            addressBanExpiry.cancel(removed.range);
+            Bukkit.getScheduler().runTaskAsynchronously(UtilityPlugin.this, UtilityPlugin.this::saveAddressBans);
+            getLogger().info(sender.getName() + " lifted the ban of " + removed.range + ".");
+            messages.broadcast("utility.helper", Message.UNIPBAN_BROADCAST, removed.range, sender.getName());
+            return true;
+        }
+    }
+
+    // Alts command: other accounts that joined from the same addresses, answered from the IP history
+    private class AltsCommandExecutor implements CommandExecutor {
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+            if (args.length != 1) {
+                messages.send(sender, Message.USAGE, "/alts <player>");
+                return false;
+            }
+
+            UUID targetUUID = resolveTarget(args[0]);
+            if (targetUUID == null) {
+                messages.send(sender, Message.PLAYER_NOT_FOUND);
+                return true;
+            }
+
+            String targetName = getTargetName(targetUUID, args[0]);
+            Map<UUID, Integer> alts = ipHistory.alts(targetUUID);
+            if (alts.isEmpty()) {
+                messages.send(sender, Message.ALTS_NONE, targetName);
+                return true;
+            }
+            messages.send(sender, Message.ALTS_HEADER, targetName, alts.size());
+            for (Map.Entry<UUID, Integer> alt : alts.entrySet()) {
+                String altName = getTargetName(alt.getKey(), alt.getKey().toString());
+                messages.send(sender, isBanned(alt.getKey()) ? Message.ALTS_ENTRY_BANNED : Message.ALTS_ENTRY, altName, alt.getValue());
+            }
+            return true;
+        }
+    }
+
+    // Utility admin command
+    private class UtilityCommandExecutor implements CommandExecutor {
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+            if (args.length == 1 && args[0].equalsIgnoreCase("stats")) {
+                showStats(sender);
+                return true;
+            }
+            if (args.length >= 1 && args.length <= 2 && args[0].equalsIgnoreCase("backup")) {
+                if (args.length == 2 && args[1].equalsIgnoreCase("list")) {
+                    listBackups(sender);
+                } else if (args.length == 1 || args[1].equalsIgnoreCase("full")) {
+                    startBackup(sender, args.length == 2);
+                } else {
+                    messages.send(sender, Message.USAGE, "/utility backup [full|list]");
+                }
+                return true;
+            }
+            if (args.length == 2 && args[0].equalsIgnoreCase("restore")) {
+                startRestore(sender, args[1]);
+                return true;
+            }
+            if ((args.length == 2 || args.length == 3)
+                    && (args[0].equalsIgnoreCase("import") || args[0].equalsIgnoreCase("export"))) {
+                BulkTransfer.Format format = BulkTransfer.Format.byId(args[1]);
+                if (format == null) {
+                    messages.send(sender, Message.USAGE, "/utility " + args[0].toLowerCase() + " <native|banned-players|banned-ips> [file]");
+                } else if (args[0].equalsIgnoreCase("import")) {
+                    startImport(sender, format, args.length == 3 ? new File(getDataFolder(), args[2]) : defaultImportFile(format));
+                } else {
+                    startExport(sender, format, new File(getDataFolder(), args.length == 3 ? args[2] : "exports/" + format.defaultFile));
+                }
+                return true;
+            }
+            if (args.length == 1 && args[0].equalsIgnoreCase("reload-filter")) {
+                reloadConfig();
+                loadChatFilter();
+                ChatFilter filter = chatFilter;
+                messages.send(sender, Message.FILTER_RELOADED, filter == null ? 0 : filter.size());
+                return true;
+            }
+            messages.send(sender, Message.USAGE, "/utility <stats|backup [full|list]|restore <backup|latest>|import|export|reload-filter>");
             return true;
         }
+
+        // The server's own ban lists, or the plugin folder for the native format
+        private File defaultImportFile(BulkTransfer.Format format) {
+            return format == BulkTransfer.Format.NATIVE ? new File(getDataFolder(), format.defaultFile) : new File(format.defaultFile);
+        }
+
+        // Reads the file record by record on an async thread and applies it on the main thread in batches
+        private void startImport(CommandSender sender, BulkTransfer.Format format, File file) {
+            if (!file.isFile()) {
+                messages.send(sender, Message.TRANSFER_NO_FILE, file.getPath());
+                return;
+            }
+            if (!transferRunning.compareAndSet(false, true)) {
+                messages.send(sender, Message.TRANSFER_BUSY);
+                return;
+            }
+            messages.send(sender, Message.IMPORT_STARTED, file.getPath());
+            Bukkit.getScheduler().runTaskAsynchronously(UtilityPlugin.this, () -> {
+                long start = System.nanoTime();
+                long[] counts = new long[2]; // imported, skipped
+                long[] lastProgress = {System.currentTimeMillis()};
+                List<Map<String, Object>> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+                try {
+                    BulkTransfer.read(file, record -> {
+                        batch.add(record);
+                        if (batch.size() >= IMPORT_BATCH_SIZE) {
+                            importBatch(sender, format, batch, counts, lastProgress);
+                            batch.clear();
+                        }
+                    });
+                    importBatch(sender, format, batch, counts, lastProgress);
+                    if (format == BulkTransfer.Format.BANNED_IPS) {
+                        saveAddressBans();
+                    }
+                    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    getLogger().info(sender.getName() + " imported " + counts[0] + " records from " + file.getPath()
+                            + " (" + counts[1] + " skipped) in " + elapsedMillis + " ms.");
+                    Bukkit.getScheduler().runTask(UtilityPlugin.this, () -> messages.send(sender, Message.IMPORT_DONE, counts[0], counts[1], elapsedMillis));
+                } catch (IOException | RuntimeException e) {
+                    getLogger().log(Level.SEVERE, "Could not import " + file.getPath(), e);
+                    if (isEnabled()) {
+                        Bukkit.getScheduler().runTask(UtilityPlugin.this, () -> messages.send(sender, Message.IMPORT_FAILED, e.getMessage(), counts[0]));
+                    }
+                } finally {
+                    transferRunning.set(false);
+                }
+            });
+        }
+
+        // Preloads the stored records a batch merges into, then applies it on the main thread and waits for it
+        private void importBatch(CommandSender sender, BulkTransfer.Format format, List<Map<String, Object>> records,
+                                 long[] counts, long[] lastProgress) throws IOException {
+            if (records.isEmpty()) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (format == BulkTransfer.Format.BANNED_IPS) {
+                List<AddressBans.Ban> bans = new ArrayList<>(records.size());
+                for (Map<String, Object> record : records) {
+                    AddressBans.Ban ban = BulkTransfer.fromBannedIp(record, now);
+                    if (ban == null) {
+                        counts[1]++;
+                    } else {
+                        bans.add(ban);
+                    }
+                }
+                applyOnMainThread(sender, counts, lastProgress, bans.size(), () -> applyAddressBanImport(bans));
+                return;
+            }
+            Map<UUID, PlayerData> imported = new LinkedHashMap<>();
+            Map<UUID, PlayerData> stored = new HashMap<>();
+            for (Map<String, Object> record : records) {
+                UUID playerUUID = BulkTransfer.uuid(record);
+                PlayerData incoming;
+                if (format == BulkTransfer.Format.NATIVE) {
+                    incoming = BulkTransfer.fromNative(record);
+                } else {
+                    long[] ban = BulkTransfer.fromBannedPlayer(record, now);
+                    if (ban == null) {
+                        counts[1]++;
+                        continue;
+                    }
+                    incoming = new PlayerData(BulkTransfer.string(record, "name"), null, 0, 0, 0, 0, ban[0], ban[1], 0);
+                }
+                // Caught here, before it is queued, rather than by the store on every flush
+                String problem = PlayerData.checkStorable(incoming.getUsername(), incoming.getPasswordHash());
+                if (problem != null) {
+                    getLogger().warning("Skipped the imported record of " + playerUUID + ": its " + problem + ".");
+                    counts[1]++;
+                    continue;
+                }
+                imported.put(playerUUID, incoming);
+                if (format == BulkTransfer.Format.NATIVE) {
+                    continue;
+                }
+                if (!playerDataMap.containsKey(playerUUID)) {
+                    PlayerData queued = persistenceQueue.peek(playerUUID);
+                    PlayerData data = queued != null ? queued.copy() : playerStore.load(playerUUID);
+                    if (data != null) {
+                        stored.put(playerUUID, data);
+                    }
+                }
+            }
+            applyOnMainThread(sender, counts, lastProgress, imported.size(), () -> applyImport(format, imported, stored));
+        }
+
+        // Runs one batch on the main thread and waits for it; 'apply' returns how many of 'size' records it used
+        private void applyOnMainThread(CommandSender sender, long[] counts, long[] lastProgress, int size,
+                                       Callable<Integer> apply) throws IOException {
+            try {
+                Bukkit.getScheduler().callSyncMethod(UtilityPlugin.this, () -> {
+                    int applied = apply.call();
+                    counts[0] += applied;
+                    counts[1] += size - applied;
+                    if (System.currentTimeMillis() - lastProgress[0] >= TRANSFER_PROGRESS_MILLIS) {
+                        lastProgress[0] = System.currentTimeMillis();
+                        messages.send(sender, Message.TRANSFER_PROGRESS, counts[0] + counts[1]);
+                    }
+                    return null;
+                }).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Could not apply imported records", e.getCause());
+            }
+        }
+
+        // Streams every stored account, with saves not yet written taking precedence, into the file
+        private void startExport(CommandSender sender, BulkTransfer.Format format, File file) {
+            if (!transferRunning.compareAndSet(false, true)) {
+                messages.send(sender, Message.TRANSFER_BUSY);
+                return;
+            }
+            saveAllData();
+            messages.send(sender, Message.EXPORT_STARTED, file.getPath());
+            Bukkit.getScheduler().runTaskAsynchronously(UtilityPlugin.this, () -> {
+                long start = System.nanoTime();
+                long now = System.currentTimeMillis();
+                AtomicLong exported = new AtomicLong();
+                AtomicLong lastProgress = new AtomicLong(now);
+                try (BulkTransfer.RecordWriter writer = new BulkTransfer.RecordWriter(file)) {
+                    IOException[] failure = new IOException[1];
+                    if (format == BulkTransfer.Format.BANNED_IPS) {
+                        for (AddressBans.Ban ban : addressBans.list()) {
+                            if (ban.isActive(now)) {
+                                writer.write(BulkTransfer.toBannedIp(ban));
+                                exported.incrementAndGet();
+                            }
+                        }
+                    } else {
+                        playerStore.forEach((playerUUID, stored) -> {
+                            PlayerData queued = persistenceQueue.peek(playerUUID);
+                            PlayerData data = queued != null ? queued : stored;
+                            try {
+                                if (format == BulkTransfer.Format.NATIVE) {
+                                    writer.write(BulkTransfer.toNative(playerUUID, data));
+                                } else if (PunishmentIndex.banDeadline(data.getBans(), data.getStartBans()) > now) {
+                                    writer.write(BulkTransfer.toBannedPlayer(playerUUID, data, getName()));
+                                } else {
+                                    return;
+                                }
+                            } catch (IOException e) {
+                                synchronized (failure) {
+                                    failure[0] = e;
+                                }
+                                return;
+                            }
+                            long count = exported.incrementAndGet();
+                            long last = lastProgress.get();
+                            if (System.currentTimeMillis() - last >= TRANSFER_PROGRESS_MILLIS
+                                    && lastProgress.compareAndSet(last, System.currentTimeMillis()) && isEnabled()) {
+                                Bukkit.getScheduler().runTask(UtilityPlugin.this, () -> messages.send(sender, Message.TRANSFER_PROGRESS, count));
+                            }
+                        });
+                    }
+                    synchronized (failure) {
+                        if (failure[0] != null) {
+                            throw failure[0];
+                        }
+                    }
+                    writer.finish();
+                    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    getLogger().info(sender.getName() + " exported " + exported.get() + " records to " + file.getPath() + " in " + elapsedMillis + " ms.");
+                    Bukkit.getScheduler().runTask(UtilityPlugin.this, () -> messages.send(sender, Message.EXPORT_DONE, exported.get(), file.getPath(), elapsedMillis));
+                } catch (IOException | RuntimeException e) {
+                    getLogger().log(Level.SEVERE, "Could not export to " + file.getPath(), e);
+                    if (isEnabled()) {
+                        Bukkit.getScheduler().runTask(UtilityPlugin.this, () -> messages.send(sender, Message.EXPORT_FAILED, e.getMessage()));
+                    }
+                } finally {
+                    transferRunning.set(false);
+                }
+            });
+        }
+
+        // Writes a backup on an async thread; store writes wait meanwhile, loads may wait on the store itself
+        private void startBackup(CommandSender sender, boolean full) {
+            if (backups == null) {
+                messages.send(sender, Message.BACKUP_UNAVAILABLE);
+                return;
+            }
+            if (!backupRunning.compareAndSet(false, true)) {
+                messages.send(sender, Message.BACKUP_BUSY);
+                return;
+            }
+            messages.send(sender, Message.BACKUP_STARTED);
+            Bukkit.getScheduler().runTaskAsynchronously(UtilityPlugin.this, () -> {
+                long start = System.nanoTime();
+                try {
+                    BackupManager.Result result = backups.backup(full);
+                    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    getLogger().info("Wrote " + result.name + " (" + result.records + " records, " + result.bytes + " bytes) in " + elapsedMillis + " ms.");
+                    if (isEnabled()) {
+                        Bukkit.getScheduler().runTask(UtilityPlugin.this, () -> messages.send(sender, Message.BACKUP_DONE,
+                                result.name, result.records, result.bytes / 1024L, elapsedMillis));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    getLogger().log(Level.SEVERE, "Could not write a backup.", e);
+                    if (isEnabled()) {
+                        Bukkit.getScheduler().runTask(UtilityPlugin.this, () -> messages.send(sender, Message.BACKUP_FAILED, e.getMessage()));
+                    }
+                } finally {
+                    backupRunning.set(false);
+                }
+            });
+        }
+
+        private void listBackups(CommandSender sender) {
+            List<String> names = backups == null ? Collections.emptyList() : backups.list();
+            if (names.isEmpty()) {
+                messages.send(sender, Message.BACKUP_NONE);
+                return;
+            }
+            messages.send(sender, Message.BACKUP_LIST_HEADER, names.size());
+            for (String name : names) {
+                messages.send(sender, Message.BACKUP_LIST_ENTRY, name);
+            }
+        }
+
+        // Verifies and reads the backup chain off the main thread, then applies it like any other save
+        private void startRestore(CommandSender sender, String name) {
+            if (backups == null) {
+                messages.send(sender, Message.BACKUP_UNAVAILABLE);
+                return;
+            }
+            if (!backupRunning.compareAndSet(false, true)) {
+                messages.send(sender, Message.BACKUP_BUSY);
+                return;
+            }
+            messages.send(sender, Message.RESTORE_STARTED, name);
+            Bukkit.getScheduler().runTaskAsynchronously(UtilityPlugin.this, () -> {
+                Map<UUID, PlayerData> records;
+                try {
+                    records = backups.restore(name);
+                } catch (IOException | RuntimeException e) {
+                    getLogger().log(Level.SEVERE, "Could not restore backup " + name, e);
+                    if (isEnabled()) {
+                        Bukkit.getScheduler().runTask(UtilityPlugin.this, () -> messages.send(sender, Message.RESTORE_FAILED, name, e.getMessage()));
+                    }
+                    backupRunning.set(false);
+                    return;
+                }
+                if (!isEnabled()) {
+                    backupRunning.set(false);
+                    return;
+                }
+                // Stays busy until the records are applied, so no backup or second restore runs in between
+                Bukkit.getScheduler().runTask(UtilityPlugin.this, () -> {
+                    try {
+                        applyRestore(records);
+                        getLogger().info(sender.getName() + " restored " + records.size() + " accounts from backup " + name + ".");
+                        messages.send(sender, Message.RESTORE_DONE, records.size(), name);
+                    } finally {
+                        backupRunning.set(false);
+                    }
+                });
+            });
+        }
+
+        // Lists every gauge and counter, and the timers that have recorded anything
+        private void showStats(CommandSender sender) {
+            messages.send(sender, Message.UTILITY_STATS_HEADER);
+            for (MetricsRegistry.Metric metric : metrics.getMetrics()) {
+                if (metric instanceof MetricsRegistry.Histogram) {
+                    MetricsRegistry.Histogram histogram = (MetricsRegistry.Histogram) metric;
+                    long count = histogram.getCount();
+                    if (count > 0) {
+                        messages.send(sender, Message.UTILITY_STATS_TIMING, metric.displayName(), count,
+                                formatMillis(histogram.getSumNanos() / count), formatMillis(histogram.quantileNanos(0.5)),
+                                formatMillis(histogram.quantileNanos(0.99)));
+                    }
+                } else if (metric instanceof MetricsRegistry.Counter) {
+                    messages.send(sender, Message.UTILITY_STATS_VALUE, metric.displayName(), ((MetricsRegistry.Counter) metric).get());
+                } else {
+                    messages.send(sender, Message.UTILITY_STATS_VALUE, metric.displayName(), ((MetricsRegistry.Gauge) metric).get());
+                }
+            }
+        }
+
+        private String formatMillis(long nanos) {
+            return nanos == Long.MAX_VALUE ? "overflow" : String.format("%.2f", nanos / 1_000_000.0);
+        }
     }
     
     // Gets the configured login spawn location
@@ -0,0 +1,158 @@
+package com.DreamLong.utility_plugin;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// The most recent warnings of each player, as a bounded ring of timestamps.
+//
+// Counts are only ever asked for a fixed set of window lengths (the escalation ladder's and the one shown
+// by /checkwarn). Each ring keeps one cursor per window pointing at its oldest warning still inside it;
+// cursors only move forward as time passes, so counting is O(1) amortized.
+final class WarningLedger {
+
+    final class History {
+        private final long[] times = new long[capacity];
+        // Entries before cursors[w] (counted from the oldest) have left window w
+        private final int[] cursors = new int[windows.length];
+        private int head;
+        private int size;
+
+        private void add(long timestamp) {
+            if (size == times.length) {
+                head = (head + 1) % times.length;
+                size--;
+                for (int w = 0; w < cursors.length; w++) {
+                    if (cursors[w] > 0) {
+                        cursors[w]--;
+                    }
+                }
+            }
+            times[(head + size) % times.length] = timestamp;
+            size++;
+        }
+
+        private boolean removeNewest() {
+            if (size == 0) {
+                return false;
+            }
+            size--;
+            for (int w = 0; w < cursors.length; w++) {
+                cursors[w] = Math.min(cursors[w], size);
+            }
+            return true;
+        }
+
+        // Warnings issued within window w before 'now'
+        int count(int window, long now) {
+            synchronized (WarningLedger.this) {
+                long cutoff = now - windows[window];
+                int cursor = cursors[window];
+                while (cursor < size && times[(head + cursor) % times.length] <= cutoff) {
+                    cursor++;
+                }
+                cursors[window] = cursor;
+                return size - cursor;
+            }
+        }
+
+        private List<Long> toList() {
+            List<Long> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(times[(head + i) % times.length]);
+            }
+            return list;
+        }
+    }
+
+    private final int capacity;
+    private final long[] windows;
+    private final Map<UUID, History> histories = new HashMap<>();
+    private boolean dirty;
+
+    // 'windows' are the window lengths in milliseconds that count() will be asked about
+    WarningLedger(int capacity, long[] windows) {
+        this.capacity = Math.max(1, capacity);
+        this.windows = windows.clone();
+    }
+
+    // Records a warning and returns the player's history for evaluating it
+    synchronized History add(UUID playerUUID, long timestamp) {
+        History history = histories.computeIfAbsent(playerUUID, key -> new History());
+        history.add(timestamp);
+        dirty = true;
+        return history;
+    }
+
+    // Drops the most recent warning, as /unwarn does
+    synchronized void removeNewest(UUID playerUUID) {
+        History history = histories.get(playerUUID);
+        if (history != null && history.removeNewest()) {
+            if (history.size == 0) {
+                histories.remove(playerUUID);
+            }
+            dirty = true;
+        }
+    }
+
+    // Warnings within window w, or 0 for players without any
+    int count(UUID playerUUID, int window, long now) {
+        History history;
+        synchronized (this) {
+            history = histories.get(playerUUID);
+        }
+        return history == null ? 0 : history.count(window, now);
+    }
+
+    synchronized void load(File file) {
+        if (!file.exists()) {
+            return;
+        }
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        for (String key : config.getKeys(false)) {
+            UUID playerUUID;
+            try {
+                playerUUID = UUID.fromString(key);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            History history = new History();
+            for (Long timestamp : config.getLongList(key)) {
+                history.add(timestamp);
+            }
+            if (history.size > 0) {
+                histories.put(playerUUID, history);
+            }
+        }
+    }
+
+    // Copies the ledger for saving when it changed since the last snapshot, otherwise returns null
+    synchronized YamlConfiguration snapshotIfDirty() {
+        if (!dirty) {
+            return null;
+        }
+        dirty = false;
+        YamlConfiguration config = new YamlConfiguration();
+        for (Map.Entry<UUID, History> entry : histories.entrySet()) {
+            config.set(entry.getKey().toString(), entry.getValue().toList());
+        }
+        return config;
+    }
+
+    // Called when saving a snapshot failed, so the next save tries again
+    synchronized void markDirty() {
+        dirty = true;
+    }
+
+    void save(File file) throws IOException {
+        YamlConfiguration snapshot = snapshotIfDirty();
+        if (snapshot != null) {
+            snapshot.save(file);
+        }
+    }
+}
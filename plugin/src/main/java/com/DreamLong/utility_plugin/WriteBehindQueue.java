@@ -0,0 +1,200 @@
+package com.DreamLong.utility_plugin;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Coalescing write-behind queue that persists player records on a dedicated I/O thread.
+// Repeated saves for the same UUID collapse into the latest snapshot before they reach disk.
+final class WriteBehindQueue<T> {
+
+    // Persists one batch of snapshots; called only from the I/O thread
+    interface Writer<T> {
+        void write(Map<UUID, T> batch) throws Exception;
+    }
+
+    private final Map<UUID, T> pending = new ConcurrentHashMap<>();
+    private final Map<UUID, T> inFlight = new ConcurrentHashMap<>();
+    private final Writer<T> writer;
+    private final Logger logger;
+    private final long flushIntervalMillis;
+    private final int batchSize;
+    private final Thread ioThread;
+    private final Object signal = new Object();
+    private volatile boolean running = true;
+
+    // Statistics
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+
+    WriteBehindQueue(String name, Writer<T> writer, Logger logger, long flushIntervalMillis, int batchSize) {
+        this.writer = writer;
+        this.logger = logger;
+        this.flushIntervalMillis = Math.max(1L, flushIntervalMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.ioThread = new Thread(this::run, name);
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+    }
+
+    // Queues a snapshot for writing, replacing any snapshot still waiting for the same UUID
+    void submit(UUID key, T snapshot) {
+        if (!running) {
+            throw new IllegalStateException("Write-behind queue is closed");
+        }
+        pending.put(key, snapshot);
+        submitted.incrementAndGet();
+        if (pending.size() >= batchSize) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+        }
+    }
+
+    // Returns the newest snapshot not yet on disk, or null if everything for this UUID was written
+    T peek(UUID key) {
+        T value = pending.get(key);
+        return value != null ? value : inFlight.get(key);
+    }
+
+    // Stops accepting writes and flushes everything still queued; returns false if the I/O thread did not
+    // finish within timeoutMillis, in which case it keeps writing in the background, or if a batch could
+    // not be written during the final drain
+    boolean close(long timeoutMillis) {
+        running = false;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        try {
+            ioThread.join(Math.max(1L, timeoutMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !ioThread.isAlive() && lost.get() == 0L;
+    }
+
+    int getDepth() {
+        return pending.size() + inFlight.size();
+    }
+
+    long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    long getWrittenCount() {
+        return written.get();
+    }
+
+    // Snapshots the final drain failed to write
+    long getLostCount() {
+        return lost.get();
+    }
+
+    long getLastFlushMillis() {
+        return lastFlushNanos / 1_000_000L;
+    }
+
+    double getAverageFlushMillis() {
+        long count = flushes.get();
+        return count == 0 ? 0.0 : totalFlushNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    private void run() {
+        while (running) {
+            synchronized (signal) {
+                if (running && pending.size() < batchSize) {
+                    try {
+                        signal.wait(flushIntervalMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            flushPending();
+        }
+        // Final drain: everything submitted before close() reaches disk
+        while (!pending.isEmpty()) {
+            flushPending();
+        }
+    }
+
+    private void flushPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<UUID, T> batch = new LinkedHashMap<>();
+        Iterator<UUID> keys = pending.keySet().iterator();
+        while (keys.hasNext()) {
+            UUID key = keys.next();
+            T value = pending.get(key);
+            if (value == null) {
+                continue;
+            }
+            // Published as in flight before it leaves pending, so peek() always finds it in one of them
+            inFlight.put(key, value);
+            if (!pending.remove(key, value)) {
+                // A newer snapshot was queued meanwhile; it goes out with a later flush
+                inFlight.remove(key, value);
+                continue;
+            }
+            batch.put(key, value);
+            if (batch.size() >= batchSize) {
+                writeBatch(batch);
+                batch = new LinkedHashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+        long elapsed = System.nanoTime() - start;
+        lastFlushNanos = elapsed;
+        totalFlushNanos.addAndGet(elapsed);
+        flushes.incrementAndGet();
+    }
+
+    private void writeBatch(Map<UUID, T> batch) {
+        try {
+            writer.write(batch);
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            if (!(e instanceof IOException)) {
+                // Not a disk problem: the same records would fail the same way on every retry
+                lost.addAndGet(batch.size());
+                logger.log(Level.SEVERE, "Dropped a batch of " + batch.size() + " player records that could not be written: " + batch.keySet(), e);
+            } else if (running) {
+                logger.log(Level.SEVERE, "Could not persist a batch of " + batch.size() + " player records", e);
+                // Put the failed snapshots back unless a newer one has been queued meanwhile
+                for (Map.Entry<UUID, T> entry : batch.entrySet()) {
+                    pending.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+            } else {
+                // Re-queuing would keep the final drain going forever, so it gets one more attempt and a
+                // second failure is reported through close()
+                logger.log(Level.WARNING, "Could not persist a batch of " + batch.size() + " player records while stopping; retrying once", e);
+                try {
+                    writer.write(batch);
+                    written.addAndGet(batch.size());
+                } catch (Exception retry) {
+                    lost.addAndGet(batch.size());
+                    logger.log(Level.SEVERE, "Lost a batch of " + batch.size() + " player records while stopping: " + batch.keySet(), retry);
+                }
+            }
+        } finally {
+            for (Map.Entry<UUID, T> entry : batch.entrySet()) {
+                inFlight.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
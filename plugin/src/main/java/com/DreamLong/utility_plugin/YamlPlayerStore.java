@@ -0,0 +1,236 @@
+package com.DreamLong.utility_plugin;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+// Original storage layout: one YML file per player in the 'players' folder
+final class YamlPlayerStore implements PlayerStore {
+
+    private final File playersFolder;
+    private final Logger logger;
+    private final int parallelism;
+
+    // Data file of every known account, so lookups for unknown UUIDs never touch the disk
+    private final Map<UUID, File> accountFiles = new ConcurrentHashMap<>();
+
+    // Writes large batches of player files in parallel
+    private final ForkJoinPool writers;
+
+    YamlPlayerStore(File playersFolder, Logger logger, int parallelism) {
+        this.playersFolder = playersFolder;
+        this.logger = logger;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.writers = new ForkJoinPool(this.parallelism);
+
+        // Create the players data folder if it doesn't exist
+        if (!playersFolder.exists()) {
+            playersFolder.mkdirs();
+        }
+        // Temporary files left by a crash mid-write; the previous version of each file is intact
+        File[] tempFiles = playersFolder.listFiles((dir, name) -> name.endsWith(".yml.tmp"));
+        if (tempFiles != null) {
+            for (File tempFile : tempFiles) {
+                if (!tempFile.delete()) {
+                    logger.warning("Could not delete the unfinished player file " + tempFile.getName());
+                }
+            }
+        }
+        File[] playerFiles = listPlayerFiles();
+        for (File playerFile : playerFiles) {
+            UUID playerUUID = parseUUID(playerFile);
+            if (playerUUID != null) {
+                accountFiles.put(playerUUID, playerFile);
+            } else {
+                logger.warning("Skipping player file with an invalid name: " + playerFile.getName());
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return playersFolder.getName() + "/*.yml";
+    }
+
+    @Override
+    public int size() {
+        return accountFiles.size();
+    }
+
+    @Override
+    public PlayerData load(UUID playerUUID) {
+        File playerFile = accountFiles.get(playerUUID);
+        return playerFile == null ? null : readPlayerFile(playerFile);
+    }
+
+    // Writes the files in parallel once a batch is large enough to be worth it; failed files are
+    // reported together so the whole batch is retried
+    @Override
+    public void saveAll(Map<UUID, PlayerData> batch) throws IOException {
+        List<IOException> failures = Collections.synchronizedList(new ArrayList<>());
+        @SuppressWarnings("unchecked")
+        Map.Entry<UUID, PlayerData>[] entries = batch.entrySet().toArray(new Map.Entry[0]);
+        if (entries.length <= WriteTask.THRESHOLD) {
+            new WriteTask(entries, 0, entries.length, failures).compute();
+        } else {
+            writers.invoke(new WriteTask(entries, 0, entries.length, failures));
+        }
+        if (!failures.isEmpty()) {
+            IOException failure = new IOException("Could not save " + failures.size() + " of " + entries.length + " player files");
+            for (IOException cause : failures) {
+                failure.addSuppressed(cause);
+            }
+            throw failure;
+        }
+    }
+
+    // Parses the player files in parallel on a fork-join pool
+    @Override
+    public void forEach(BiConsumer<UUID, PlayerData> consumer) {
+        File[] playerFiles = listPlayerFiles();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ScanTask(playerFiles, 0, playerFiles.length, consumer));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public void close() {
+        writers.shutdown();
+    }
+
+    // Writes data for a single player to a temporary file and renames it over their YML file, so a crash
+    // mid-write leaves the previous version intact
+    private void writePlayerFile(UUID playerUUID, PlayerData data) throws IOException {
+        File playerFile = new File(playersFolder, playerUUID.toString() + ".yml");
+        File tempFile = new File(playersFolder, playerUUID.toString() + ".yml.tmp");
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("Username", data.getUsername());
+        config.set("Password", data.getPasswordHash());
+        config.set("Warns", data.getWarns());
+        config.set("StartWarns", data.getStartWarns());
+        config.set("Mutes", data.getMutes());
+        config.set("StartMutes", data.getStartMutes());
+        config.set("Bans", data.getBans());
+        config.set("StartBans", data.getStartBans());
+        config.set("loginAttempts", data.getLoginAttempts());
+    
+        try {
+            Files.write(tempFile.toPath(), config.saveToString().getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile.toPath(), playerFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            accountFiles.put(playerUUID, playerFile);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile.toPath());
+            throw new IOException("Could not save data for player " + data.getUsername() + " (" + playerUUID + ")", e);
+        }
+    }
+
+    // Parses a player's YML file into a PlayerData record
+    private PlayerData readPlayerFile(File playerFile) {
+        YamlConfiguration data = YamlConfiguration.loadConfiguration(playerFile);
+        String username = data.getString("Username");
+        String passwordHash = data.getString("Password");
+        long warns = data.getLong("Warns", 0);
+        long startWarns = data.getLong("StartWarns", 0);
+        long mutes = data.getLong("Mutes", 0);
+        long startMutes = data.getLong("StartMutes", 0);
+        long bans = data.getLong("Bans", 0);
+        long startBans = data.getLong("StartBans", 0);
+        long loginAttempts = data.getLong("loginAttempts", 0);
+    
+        return new PlayerData(username, passwordHash, warns, startWarns, mutes, startMutes, bans, startBans, loginAttempts);
+    }
+
+    private File[] listPlayerFiles() {
+        File[] playerFiles = playersFolder.listFiles((dir, name) -> name.toLowerCase().endsWith(".yml"));
+        return playerFiles == null ? new File[0] : playerFiles;
+    }
+
+    private static UUID parseUUID(File playerFile) {
+        try {
+            return UUID.fromString(playerFile.getName().substring(0, playerFile.getName().length() - 4));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Splits a scan into chunks of player files for the fork-join pool
+    private class ScanTask extends RecursiveAction {
+        private static final int THRESHOLD = 64;
+
+        private final File[] files;
+        private final int start;
+        private final int end;
+        private final BiConsumer<UUID, PlayerData> consumer;
+
+        ScanTask(File[] files, int start, int end, BiConsumer<UUID, PlayerData> consumer) {
+            this.files = files;
+            this.start = start;
+            this.end = end;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= THRESHOLD) {
+                for (int i = start; i < end; i++) {
+                    UUID playerUUID = parseUUID(files[i]);
+                    if (playerUUID != null) {
+                        consumer.accept(playerUUID, readPlayerFile(files[i]));
+                    }
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new ScanTask(files, start, middle, consumer), new ScanTask(files, middle, end, consumer));
+        }
+    }
+
+    // Splits a batch of writes into chunks for the fork-join pool
+    private class WriteTask extends RecursiveAction {
+        private static final int THRESHOLD = 16;
+
+        private final Map.Entry<UUID, PlayerData>[] entries;
+        private final int start;
+        private final int end;
+        private final List<IOException> failures;
+
+        WriteTask(Map.Entry<UUID, PlayerData>[] entries, int start, int end, List<IOException> failures) {
+            this.entries = entries;
+            this.start = start;
+            this.end = end;
+            this.failures = failures;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= THRESHOLD) {
+                for (int i = start; i < end; i++) {
+                    try {
+                        writePlayerFile(entries[i].getKey(), entries[i].getValue());
+                    } catch (IOException e) {
+                        failures.add(e);
+                    }
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new WriteTask(entries, start, middle, failures), new WriteTask(entries, middle, end, failures));
+        }
+    }
+}